@@ -0,0 +1,94 @@
+package graph;
+
+import java.util.Random;
+
+/**
+ * Measures each AdaptiveGraph representation, pinned by its thresholds, on
+ * graphs of increasing size and density, to locate the crossover points that
+ * AdaptiveGraph's default thresholds are tuned to.
+ * 
+ * <p>For each vertex count and density, the graph is first filled with
+ * random edges to that density and then timed on a mix of calls, in mean
+ * nanoseconds per call; the fastest representation is marked with *. The
+ * "mixed" workload is half set and half targets/sources calls, the "write"
+ * workload only set calls. The adaptive
+ * graph with default thresholds is measured last, together with the
+ * representation it settled on.
+ * 
+ * <p>Usage: {@code java graph.AdaptiveGraphBenchmark [opsPerCell] [mixed|write]}
+ */
+public class AdaptiveGraphBenchmark {
+    
+    private static final int[] VERTICES = { 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096 };
+    private static final double[] DENSITIES = { 0.01, 0.05, 0.1, 0.25, 0.5 };
+    
+    private static boolean writes;
+    
+    public static void main(String[] args) {
+        int ops = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        writes = args.length > 1 && args[1].equals("write");
+        // warm up every representation on small and large graphs before measuring
+        for (int round = 0; round < 3; round++) {
+            for (int n : new int[] { 8, 512 }) {
+                run(new AdaptiveGraph<>(1 << 20, 0, 0), n, n, ops / 10);
+                run(new AdaptiveGraph<>(0, Integer.MAX_VALUE, 0), n, n * n / 4, ops / 10);
+                run(new AdaptiveGraph<>(0, 0, 0), n, n * n / 4, ops / 10);
+                run(new AdaptiveGraph<>(), n, n * n / 4, ops / 10);
+            }
+        }
+        System.out.printf("%6s %7s %10s %10s %10s %10s%n", "n", "density", "compact", "dense", "sparse", "adaptive");
+        for (int n : VERTICES) {
+            for (double density : DENSITIES) {
+                int edges = (int) Math.max(1, density * n * n);
+                if (n > 1024 && density > 0.1) {
+                    continue;
+                }
+                double compact = n * n * density > 100_000 ? Double.NaN
+                        : run(new AdaptiveGraph<>(1 << 20, 0, 0), n, edges, ops);
+                double dense = run(new AdaptiveGraph<>(0, Integer.MAX_VALUE, 0), n, edges, ops);
+                double sparse = run(new AdaptiveGraph<>(0, 0, 0), n, edges, ops);
+                AdaptiveGraph<Integer> adaptive = new AdaptiveGraph<>();
+                double chosen = run(adaptive, n, edges, ops);
+                double best = Math.min(dense, sparse);
+                if (!Double.isNaN(compact)) {
+                    best = Math.min(best, compact);
+                }
+                System.out.printf("%6d %7.2f %10s %10s %10s %9.0f  %s%n", n, density,
+                        cell(compact, best), cell(dense, best), cell(sparse, best), chosen,
+                        adaptive.representation());
+            }
+        }
+    }
+    
+    private static String cell(double nanos, double best) {
+        return Double.isNaN(nanos) ? "-" : String.format("%.0f%s", nanos, nanos == best ? "*" : " ");
+    }
+    
+    // mean nanoseconds per operation over ops mixed operations
+    private static double run(Graph<Integer> graph, int n, int edges, int ops) {
+        Random random = new Random(n * 31 + edges);
+        while (graph instanceof AdaptiveGraph && ((AdaptiveGraph<Integer>) graph).edgeCount() < edges) {
+            graph.set(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(100));
+        }
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            int choice = writes ? 0 : random.nextInt(4);
+            int vertex = random.nextInt(n);
+            if (choice < 2) {
+                int other = random.nextInt(n);
+                // keep the density steady: overwrite existing edges, else add and remove one
+                int previous = graph.set(vertex, other, 1 + random.nextInt(100));
+                if (previous == 0) {
+                    graph.set(vertex, other, 0);
+                }
+            } else if (choice == 2) {
+                sink += graph.targets(vertex).size();
+            } else {
+                sink += graph.sources(vertex).size();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return sink < 0 ? 0 : elapsed / (double) ops;
+    }
+}
@@ -0,0 +1,60 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares merging per-shard graphs with GraphMerge against replaying every
+ * edge of every shard through Graph.set.
+ * 
+ * <p>Usage: {@code java graph.GraphMergeBenchmark [shards] [vertices] [edgesPerShard]}
+ */
+public class GraphMergeBenchmark {
+    
+    public static void main(String[] args) {
+        int shards = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int vertices = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int edges = args.length > 2 ? Integer.parseInt(args[2]) : 250_000;
+        
+        List<Graph<String>> graphs = new ArrayList<>();
+        Random random = new Random(11);
+        for (int s = 0; s < shards; s++) {
+            Graph<String> graph = new OffHeapGraph();
+            for (int i = 0; i < edges; i++) {
+                graph.set("v" + random.nextInt(vertices), "v" + random.nextInt(vertices), 1 + random.nextInt(10));
+            }
+            graphs.add(graph);
+        }
+        
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            try (OffHeapGraph replayed = new OffHeapGraph()) {
+                for (Graph<String> graph : graphs) {
+                    for (String source : graph.vertices()) {
+                        replayed.add(source);
+                        for (Map.Entry<String, Integer> edge : graph.targets(source).entrySet()) {
+                            Integer current = replayed.targets(source).get(edge.getKey());
+                            replayed.set(source, edge.getKey(), (current == null ? 0 : current) + edge.getValue());
+                        }
+                    }
+                }
+                long t1 = System.nanoTime();
+                List<WeightMatrix> snapshots = new ArrayList<>();
+                for (Graph<String> graph : graphs) {
+                    snapshots.add(WeightMatrix.of(graph));
+                }
+                long t2 = System.nanoTime();
+                WeightMatrix merged = GraphMerge.merge(snapshots);
+                long t3 = System.nanoTime();
+                int changes = GraphMerge.diff(snapshots.get(0), merged).size();
+                long t4 = System.nanoTime();
+                System.out.printf("round %d: replay %5d ms (%d edges); snapshot %4d ms, merge %4d ms (%d edges); "
+                        + "diff %4d ms (%d changes)%n", round, (t1 - t0) / 1_000_000, replayed.edgeCount(),
+                        (t2 - t1) / 1_000_000, (t3 - t2) / 1_000_000, merged.edgeCount(),
+                        (t4 - t3) / 1_000_000, changes);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package graph;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares garbage collection cost while a large graph is live, with the
+ * adjacency on the heap (label -> map of targets, as in ConcreteVerticesGraph)
+ * versus off the heap in OffHeapGraph.
+ * 
+ * <p>Usage: {@code java -Xmx4g graph.OffHeapGraphBenchmark [vertices] [edges]}
+ * <br>Run each mode in a fresh JVM for cleaner numbers by passing a third
+ * argument {@code heap} or {@code offheap}.
+ */
+public class OffHeapGraphBenchmark {
+    
+    private static final int CHURN_ROUNDS = 200;
+    
+    public static void main(String[] args) {
+        int vertices = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int edges = args.length > 1 ? Integer.parseInt(args[1]) : 4_000_000;
+        String mode = args.length > 2 ? args[2] : "both";
+        
+        if (!mode.equals("offheap")) {
+            Map<String, Map<String, Integer>> heap = new HashMap<>();
+            long build = fill(vertices, edges, (s, t, w) -> heap.computeIfAbsent(s, k -> new HashMap<>()).put(t, w));
+            report("heap", build, churn(), heap.size());
+        }
+        if (!mode.equals("heap")) {
+            try (OffHeapGraph offHeap = new OffHeapGraph()) {
+                long build = fill(vertices, edges, offHeap::set);
+                report("offheap", build, churn(), offHeap.edgeCount());
+            }
+        }
+    }
+    
+    private interface EdgeSink {
+        void set(String source, String target, int weight);
+    }
+    
+    private static long fill(int vertices, int edges, EdgeSink sink) {
+        String[] labels = new String[vertices];
+        for (int i = 0; i < vertices; i++) {
+            labels[i] = "w" + i;
+        }
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < edges; i++) {
+            sink.set(labels[random.nextInt(vertices)], labels[random.nextInt(vertices)], 1 + random.nextInt(100));
+        }
+        return System.nanoTime() - start;
+    }
+    
+    // Allocate short-lived garbage while the graph is live and measure the
+    // collections it triggers; returns {collections, collection millis}.
+    private static long[] churn() {
+        long[] before = gcTotals();
+        long sink = 0;
+        for (int round = 0; round < CHURN_ROUNDS; round++) {
+            Object[] garbage = new Object[100_000];
+            for (int i = 0; i < garbage.length; i++) {
+                garbage[i] = new int[8];
+            }
+            sink += garbage.length;
+            if (round % 50 == 0) {
+                System.gc();
+            }
+        }
+        long[] after = gcTotals();
+        if (sink == 0) {
+            System.out.println();
+        }
+        return new long[] { after[0] - before[0], after[1] - before[1] };
+    }
+    
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+        return new long[] { count, millis };
+    }
+    
+    private static void report(String name, long buildNanos, long[] gc, int size) {
+        System.out.printf("%-8s build %6d ms   gc %4d collections %6d ms   (size %d)%n",
+                name, buildNanos / 1_000_000, gc[0], gc[1], size);
+    }
+}
@@ -0,0 +1,89 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares bulk weight operations on a WeightMatrix against the same
+ * operations computed through Graph.targets() maps, and the scalar kernels
+ * of the matrix against the Vector API kernels.
+ * 
+ * <p>Usage: {@code java --add-modules jdk.incubator.vector graph.WeightMatrixBenchmark
+ * [vertices] [edges] [rounds]}; without the module only the scalar kernels
+ * are measured. Fewer vertices for the same edges give longer rows.
+ */
+public class WeightMatrixBenchmark {
+    
+    public static void main(String[] args) {
+        int vertices = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int edges = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        
+        try (OffHeapGraph graph = new OffHeapGraph()) {
+            Random random = new Random(3);
+            for (int i = 0; i < edges; i++) {
+                graph.set("v" + random.nextInt(vertices), "v" + random.nextInt(vertices), 1 + random.nextInt(1000));
+            }
+            long start = System.nanoTime();
+            WeightMatrix matrix = WeightMatrix.of(graph);
+            System.out.printf("%s, snapshot %d ms%n", matrix, (System.nanoTime() - start) / 1_000_000);
+            
+            List<WeightKernels> kernels = new ArrayList<>();
+            kernels.add(WeightKernels.scalar());
+            if (WeightKernels.vector() != null) {
+                kernels.add(WeightKernels.vector());
+            } else {
+                System.out.println("Vector API kernels unavailable; run with --add-modules jdk.incubator.vector");
+            }
+            for (int round = 0; round < rounds; round++) {
+                double checksum = 0;
+                long t0 = System.nanoTime();
+                for (String vertex : graph.vertices()) {
+                    long sum = 0;
+                    for (int weight : graph.targets(vertex).values()) {
+                        sum += weight;
+                    }
+                    checksum += sum;
+                }
+                long t1 = System.nanoTime();
+                for (String vertex : graph.vertices()) {
+                    Map<String, Integer> targets = graph.targets(vertex);
+                    long sum = 0;
+                    for (int weight : targets.values()) {
+                        sum += weight;
+                    }
+                    Map<String, Double> row = new HashMap<>();
+                    for (Map.Entry<String, Integer> entry : targets.entrySet()) {
+                        row.put(entry.getKey(), entry.getValue() / (double) sum);
+                    }
+                    checksum += row.size();
+                }
+                long t2 = System.nanoTime();
+                StringBuilder line = new StringBuilder(String.format(
+                        "round %2d: map rowSums %5d ms, normalize %5d ms", round,
+                        (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000));
+                for (WeightKernels kernel : kernels) {
+                    long k0 = System.nanoTime();
+                    for (long sum : matrix.rowSums(kernel)) {
+                        checksum -= sum;
+                    }
+                    long k1 = System.nanoTime();
+                    checksum += matrix.normalizeRows(kernel).length;
+                    long k2 = System.nanoTime();
+                    checksum += matrix.scaleWeights(0.5, kernel).length;
+                    long k3 = System.nanoTime();
+                    line.append(String.format("; %s rowSums %6.2f ms, normalize %6.2f ms, scale %6.2f ms",
+                            kernel, (k1 - k0) / 1e6, (k2 - k1) / 1e6, (k3 - k2) / 1e6));
+                }
+                long t3 = System.nanoTime();
+                checksum += matrix.topKPerRow(5).length;
+                long t4 = System.nanoTime();
+                line.append(String.format("; topKPerRow(5) %4d ms  (%.0f)", (t4 - t3) / 1_000_000, checksum));
+                System.out.println(line);
+            }
+        }
+    }
+}
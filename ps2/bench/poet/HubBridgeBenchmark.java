@@ -0,0 +1,97 @@
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import graph.OffHeapGraph;
+import graph.StatisticsGraph;
+
+/**
+ * Compares bridge lookups with and without precomputed hub tables on
+ * synthetic corpora whose word frequencies follow a Zipf distribution.
+ * 
+ * <p>Usage: {@code java poet.HubBridgeBenchmark [vocabulary] [corpusWords] [queries]}
+ */
+public class HubBridgeBenchmark {
+    
+    public static void main(String[] args) throws IOException {
+        int vocabulary = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int corpusWords = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        
+        for (double exponent : new double[] { 0.8, 1.0, 1.2 }) {
+            Zipf zipf = new Zipf(vocabulary, exponent, new Random(17));
+            File corpus = File.createTempFile("zipf", ".txt");
+            corpus.deleteOnExit();
+            try (PrintWriter out = new PrintWriter(corpus, "UTF-8")) {
+                for (int i = 0; i < corpusWords; i++) {
+                    out.print("w" + zipf.next());
+                    out.print(i % 16 == 15 ? '\n' : ' ');
+                }
+            }
+            List<Map.Entry<String, String>> pairs = new ArrayList<>(queries);
+            for (int i = 0; i < queries; i++) {
+                pairs.add(new AbstractMap.SimpleImmutableEntry<>("w" + zipf.next(), "w" + zipf.next()));
+            }
+            System.out.printf("zipf s=%.1f, %d words, %d distinct, %d queries%n",
+                    exponent, corpusWords, vocabulary, queries);
+            for (long budget : new long[] { 0, 1 << 18, GraphPoet.DEFAULT_HUB_BUDGET }) {
+                run(corpus, pairs, budget);
+            }
+        }
+    }
+    
+    private static void run(File corpus, List<Map.Entry<String, String>> pairs, long budget) throws IOException {
+        OffHeapGraph storage = new OffHeapGraph();
+        try {
+            StatisticsGraph<String> graph = new StatisticsGraph<>(storage);
+            long start = System.nanoTime();
+            GraphPoet poet = new GraphPoet(corpus, graph, budget);
+            long built = System.nanoTime();
+            HubBridgeIndex index = new HubBridgeIndex(graph, budget, 4);
+            long checksum = 0;
+            long queryStart = System.nanoTime();
+            for (int from = 0; from < pairs.size(); from += 1000) {
+                for (List<Bridge> bridges : poet.bridges(pairs.subList(from, Math.min(pairs.size(), from + 1000)), 1)) {
+                    checksum += bridges.isEmpty() ? 0 : bridges.get(0).getWeight();
+                }
+            }
+            long end = System.nanoTime();
+            System.out.printf("  budget %8d: build %6d ms, %s, queries %6d ms (%.0f pairs/s) checksum %d%n",
+                    budget, (built - start) / 1_000_000, index, (end - queryStart) / 1_000_000,
+                    pairs.size() * 1e9 / (end - queryStart), checksum);
+        } finally {
+            storage.close();
+        }
+    }
+    
+    // Samples ranks 0..n-1 with probability proportional to 1 / (rank+1)^s.
+    private static class Zipf {
+        private final double[] cumulative;
+        private final Random random;
+        
+        Zipf(int n, double s, Random random) {
+            this.random = random;
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, s);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+        
+        int next() {
+            int index = java.util.Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package poet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Compares time-to-first-poem of poet.Main in fresh JVMs when rebuilding the
+ * graph from corpus text, when loading a prebuilt graph image, and when
+ * loading the image with an AppCDS archive. Requires JDK 13 or later.
+ * 
+ * <p>Every measured launch uses the JIT flags of {@code startup/poet.sh run},
+ * so the configurations differ only in how the graph and classes are loaded.
+ * 
+ * <p>Usage, from the ps2 directory:
+ * {@code java -cp bin poet.StartupBenchmark [corpus] [runs]}
+ */
+public class StartupBenchmark {
+    
+    private static final String JAVA = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    
+    // JIT flags of startup/poet.sh run: C1 only, which compiles soonest
+    private static final List<String> JIT = Arrays.asList("-XX:TieredStopAtLevel=1");
+    
+    // AppCDS only archives classes loaded from jar files
+    private static String classpath;
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String corpus = args.length > 0 ? args[0] : "src/poet/mugar-omni-theater.txt";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        
+        File work = new File(System.getProperty("java.io.tmpdir"), "poet-startup-" + System.nanoTime());
+        if (!work.mkdirs()) {
+            throw new IOException("cannot create " + work);
+        }
+        classpath = jar(new File(work, "poet.jar"));
+        String image = new File(work, "corpus.graph").getPath();
+        String archive = new File(work, "poet.jsa").getPath();
+        launch(Arrays.asList("poet.GraphImage", corpus, image));
+        launch(Arrays.asList("-XX:ArchiveClassesAtExit=" + archive, "poet.Main", "--image", image));
+        
+        report("text rebuild", runs, Arrays.asList("poet.Main", "--corpus", corpus));
+        report("image load", runs, Arrays.asList("poet.Main", "--image", image));
+        report("image + AppCDS", runs, Arrays.asList("-XX:SharedArchiveFile=" + archive, "-Xshare:auto",
+                "poet.Main", "--image", image));
+    }
+    
+    private static void report(String name, int runs, List<String> args) throws IOException, InterruptedException {
+        List<Long> wall = new ArrayList<>();
+        List<Long> firstPoem = new ArrayList<>();
+        List<String> command = new ArrayList<>(JIT);
+        command.addAll(args);
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            List<String> output = launch(command);
+            wall.add((System.nanoTime() - start) / 1_000_000);
+            for (String line : output) {
+                if (line.startsWith("time-to-first-poem: ")) {
+                    firstPoem.add(Long.parseLong(line.replaceAll("\\D", "")));
+                }
+            }
+        }
+        System.out.printf("%-16s time-to-first-poem median %5d ms, process wall median %5d ms (%d runs)%n",
+                name, median(firstPoem), median(wall), runs);
+    }
+    
+    private static long median(List<Long> values) {
+        if (values.isEmpty()) {
+            return -1;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+    
+    private static List<String> launch(List<String> args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(JAVA, "-cp", classpath));
+        command.addAll(args);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                output.add(line);
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("command failed: " + command + "\n" + String.join("\n", output));
+        }
+        return output;
+    }
+    
+    // Package the directories of this JVM's classpath into one jar; returns
+    // the classpath to launch with.
+    private static String jar(File jar) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                File root = new File(entry);
+                if (root.isDirectory()) {
+                    addTree(out, root.toPath(), root.toPath());
+                } else {
+                    entries.add(entry);
+                }
+            }
+        }
+        entries.add(0, jar.getPath());
+        return String.join(File.pathSeparator, entries);
+    }
+    
+    private static void addTree(JarOutputStream out, Path root, Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> children = Files.list(path)) {
+                for (Path child : (Iterable<Path>) children.sorted()::iterator) {
+                    addTree(out, root, child);
+                }
+            }
+        } else {
+            out.putNextEntry(new JarEntry(root.relativize(path).toString().replace(File.separatorChar, '/')));
+            Files.copy(path, out);
+            out.closeEntry();
+        }
+    }
+}
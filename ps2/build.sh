@@ -0,0 +1,40 @@
+#!/bin/sh
+# Command-line build of ps2 into bin/, for use outside Eclipse. Besides src,
+# test and bench it compiles the vector and foreign folders, which need the
+# incubating jdk.incubator.vector and jdk.incubator.foreign modules that the
+# Eclipse .classpath does not add, and runs tests with -Dgraph.kernels=vector
+# and -Dgraph.offheap=foreign so that WeightMatrixTest and OffHeapGraphTest
+# fail if those are missing instead of silently testing the fallbacks.
+# Requires JDK 17; set JUNIT to the JUnit 4 and Hamcrest jars, colon separated.
+# Run from the ps2 directory.
+#
+#   ./build.sh compile                         # compile src, bench, vector, foreign
+#   ./build.sh test graph.WeightMatrixTest ... # compile, then run the tests
+
+set -e
+OUT=bin
+MODULES="--add-modules jdk.incubator.vector,jdk.incubator.foreign"
+
+compile() {
+    mkdir -p "$OUT"
+    javac $MODULES -d "$OUT" -cp "$OUT" $(find src bench vector foreign -name '*.java')
+    (cd src && find . -name '*.txt' -exec cp {} "../$OUT/{}" \;)
+}
+
+case "$1" in
+compile)
+    compile
+    ;;
+test)
+    shift
+    compile
+    # compile only the named test classes and what they use
+    javac $MODULES -d "$OUT" -cp "$OUT:$JUNIT" -sourcepath test \
+        $(for test in "$@"; do echo "test/$(echo "$test" | tr . /).java"; done)
+    exec java -ea $MODULES -Dgraph.kernels=vector -Dgraph.offheap=foreign -cp "$OUT:$JUNIT" org.junit.runner.JUnitCore "$@"
+    ;;
+*)
+    echo "usage: $0 compile | test TestClass..." >&2
+    exit 2
+    ;;
+esac
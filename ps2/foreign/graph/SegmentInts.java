@@ -0,0 +1,54 @@
+package graph;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * OffHeapInts stored in native memory segments of the incubating foreign
+ * memory API, each in its own shared resource scope, so its memory is freed
+ * as soon as the segment is released. Requires
+ * {@code --add-modules jdk.incubator.foreign} at compile and run time; loaded
+ * reflectively by OffHeapInts, which falls back to direct buffers without it.
+ */
+final class SegmentInts extends OffHeapInts<MemorySegment> {
+
+    SegmentInts(int segmentInts, long initial) {
+        super(segmentInts, initial);
+    }
+
+    @Override
+    int get(long index) {
+        return MemoryAccess.getIntAtIndex(segments[(int) (index >>> shift)], index & mask);
+    }
+
+    @Override
+    void put(long index, int value) {
+        MemoryAccess.setIntAtIndex(segments[(int) (index >>> shift)], index & mask, value);
+    }
+
+    @Override
+    MemorySegment[] newSegments(int length) {
+        return new MemorySegment[length];
+    }
+
+    @Override
+    MemorySegment newSegment(long ints) {
+        return MemorySegment.allocateNative(ints * Integer.BYTES, Integer.BYTES, ResourceScope.newSharedScope());
+    }
+
+    @Override
+    void copy(MemorySegment from, MemorySegment to) {
+        to.asSlice(0, from.byteSize()).copyFrom(from);
+    }
+
+    @Override
+    void release(MemorySegment segment) {
+        segment.scope().close();
+    }
+
+    @Override
+    public String toString() {
+        return "foreign";
+    }
+}
@@ -0,0 +1,622 @@
+package graph;
+
+import java.util.*;
+
+/**
+ * A Graph that chooses its own representation from its observed size and
+ * density, migrating between representations as the graph changes.
+ *
+ * <p>A new graph starts COMPACT: vertices and edges in small arrays searched
+ * linearly, which is fastest while the graph is tiny. Once it outgrows that,
+ * it becomes DENSE, an adjacency matrix of weights, if its density
+ * (edges / vertices^2) is at least the dense threshold, and SPARSE, hashed
+ * adjacency maps in both directions, otherwise. A dense graph becomes sparse
+ * if it has too many vertices for a matrix or its density falls below half
+ * the threshold; a sparse graph becomes dense if it has at most half the
+ * matrix vertex limit and its density reaches the threshold. The gaps between
+ * these conditions keep a graph near a threshold from migrating back and
+ * forth. A graph never returns to COMPACT.
+ *
+ * <p>Migration copies the graph, in time linear in the size of the old
+ * representation; it is invisible to callers except in performance.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class AdaptiveGraph<L> implements Graph<L> {
+
+    /** The storage layouts an AdaptiveGraph moves between. */
+    public enum Representation { COMPACT, DENSE, SPARSE }
+
+    /*
+     * Defaults, from AdaptiveGraphBenchmark: the compact arrays are no slower
+     * than the other representations only up to about 8 vertices. The matrix
+     * makes set 1.5-3x faster than hashing at every size, and matches hashing
+     * on targets/sources from density 0.25 up to about 256 vertices, past
+     * which the row and column scans fall behind.
+     */
+
+    /** Default largest number of vertices of a COMPACT graph. */
+    public static final int DEFAULT_COMPACT_VERTICES = 8;
+
+    /** Default largest number of vertices of a DENSE graph. */
+    public static final int DEFAULT_DENSE_VERTICES = 512;
+
+    /** Default smallest density for which a graph becomes DENSE. */
+    public static final double DEFAULT_DENSE_DENSITY = 0.25;
+
+    private final int compactVertices;
+    private final long compactEdges;
+    private final int denseVertices;
+    private final double denseDensity;
+    private Storage<L> storage = new CompactStorage<>();
+    private int migrations = 0;
+
+    // Abstraction function:
+    //   Represents the graph held by storage.
+    // Representation invariant:
+    //   compactVertices >= 0, compactEdges == 4 * compactVertices,
+    //   denseVertices >= 0, denseDensity >= 0;
+    //   if storage is COMPACT, it has at most compactVertices vertices and
+    //   compactEdges edges;
+    //   if storage is DENSE, it has at most denseVertices vertices
+    // Safety from rep exposure:
+    //   All fields are private; storage is never returned, and all observers
+    //   of storage return new collections.
+
+    /** Create an empty graph with default thresholds. */
+    public AdaptiveGraph() {
+        this(DEFAULT_COMPACT_VERTICES, DEFAULT_DENSE_VERTICES, DEFAULT_DENSE_DENSITY);
+    }
+
+    /**
+     * Create an empty graph with the given thresholds.
+     *
+     * @param compactVertices largest number of vertices of a COMPACT graph,
+     *        which also holds at most 4 * compactVertices edges; nonnegative
+     * @param denseVertices largest number of vertices of a DENSE graph,
+     *        nonnegative
+     * @param denseDensity smallest density for which a graph becomes DENSE,
+     *        nonnegative
+     */
+    public AdaptiveGraph(int compactVertices, int denseVertices, double denseDensity) {
+        if (compactVertices < 0 || denseVertices < 0 || !(denseDensity >= 0)) {
+            throw new IllegalArgumentException("invalid thresholds");
+        }
+        this.compactVertices = compactVertices;
+        this.compactEdges = 4L * compactVertices;
+        this.denseVertices = denseVertices;
+        this.denseDensity = denseDensity;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert storage != null : "Storage is null";
+        assert storage.representation() != Representation.COMPACT
+                || (storage.vertexCount() <= compactVertices && storage.edgeCount() <= compactEdges)
+                : "Compact graph too large";
+        assert storage.representation() != Representation.DENSE || storage.vertexCount() <= denseVertices
+                : "Dense graph too large";
+    }
+
+    /** @return the current representation of this graph */
+    public Representation representation() {
+        return storage.representation();
+    }
+
+    /** @return the number of times this graph has changed representation */
+    public int migrations() {
+        return migrations;
+    }
+
+    /** @return the number of edges in this graph */
+    public int edgeCount() {
+        return storage.edgeCount();
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        boolean added = storage.add(vertex);
+        adapt();
+        checkRep();
+        return added;
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        int previous = storage.set(source, target, weight);
+        adapt();
+        checkRep();
+        return previous;
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        boolean removed = storage.remove(vertex);
+        adapt();
+        checkRep();
+        return removed;
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return storage.vertices();
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        return storage.sources(target);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        return storage.targets(source);
+    }
+
+    // Migrate storage if its size and density call for another representation.
+    private void adapt() {
+        int vertices = storage.vertexCount();
+        int edges = storage.edgeCount();
+        double density = vertices == 0 ? 0 : edges / ((double) vertices * vertices);
+        Representation wanted;
+        switch (storage.representation()) {
+        case COMPACT:
+            if (vertices <= compactVertices && edges <= compactEdges) {
+                return;
+            }
+            wanted = vertices <= denseVertices && density >= denseDensity ? Representation.DENSE
+                    : Representation.SPARSE;
+            break;
+        case DENSE:
+            if (vertices <= denseVertices && (density >= denseDensity / 2 || vertices <= compactVertices)) {
+                return;
+            }
+            wanted = Representation.SPARSE;
+            break;
+        default:
+            if (vertices > denseVertices / 2 || vertices <= compactVertices || density < denseDensity) {
+                return;
+            }
+            wanted = Representation.DENSE;
+            break;
+        }
+        Storage<L> next = wanted == Representation.DENSE ? new DenseStorage<>(denseVertices) : new SparseStorage<>();
+        Set<L> labels = storage.vertices();
+        for (L vertex : labels) {
+            next.add(vertex);
+        }
+        for (L source : labels) {
+            for (Map.Entry<L, Integer> edge : storage.targets(source).entrySet()) {
+                next.set(source, edge.getKey(), edge.getValue());
+            }
+        }
+        storage = next;
+        migrations++;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveGraph(" + storage.representation() + ", " + storage.vertexCount() + " vertices, "
+                + storage.edgeCount() + " edges)";
+    }
+
+    // A representation of a graph; observers return new collections.
+    private interface Storage<L> extends Graph<L> {
+
+        Representation representation();
+
+        int vertexCount();
+
+        int edgeCount();
+    }
+
+    /*
+     * Vertices in a list, edges in parallel arrays of source index, target
+     * index and weight; every lookup is a linear scan.
+     */
+    private static class CompactStorage<L> implements Storage<L> {
+
+        private final List<L> labels = new ArrayList<>();
+        private int[] sources = new int[4];
+        private int[] targets = new int[4];
+        private int[] weights = new int[4];
+        private int edges = 0;
+
+        // Abstraction function:
+        //   Represents the graph with vertices labels and, for each e < edges,
+        //   an edge labels[sources[e]] -> labels[targets[e]] of weight
+        //   weights[e].
+        // Representation invariant:
+        //   labels has no duplicates; the three arrays have equal lengths
+        //   >= edges; sources[e], targets[e] index labels, weights[e] > 0, and
+        //   no two edges have the same source and target, for e < edges
+        // Safety from rep exposure:
+        //   Fields are private and never returned.
+
+        @Override
+        public Representation representation() {
+            return Representation.COMPACT;
+        }
+
+        @Override
+        public int vertexCount() {
+            return labels.size();
+        }
+
+        @Override
+        public int edgeCount() {
+            return edges;
+        }
+
+        private int edge(int source, int target) {
+            for (int e = 0; e < edges; e++) {
+                if (sources[e] == source && targets[e] == target) {
+                    return e;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            if (labels.contains(vertex)) {
+                return false;
+            }
+            labels.add(vertex);
+            return true;
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            if (weight != 0) {
+                add(source);
+                add(target);
+            }
+            int s = labels.indexOf(source);
+            int t = labels.indexOf(target);
+            if (s < 0 || t < 0) {
+                return 0;
+            }
+            int e = edge(s, t);
+            if (e < 0) {
+                if (weight != 0) {
+                    if (edges == weights.length) {
+                        sources = Arrays.copyOf(sources, 2 * edges);
+                        targets = Arrays.copyOf(targets, 2 * edges);
+                        weights = Arrays.copyOf(weights, 2 * edges);
+                    }
+                    sources[edges] = s;
+                    targets[edges] = t;
+                    weights[edges] = weight;
+                    edges++;
+                }
+                return 0;
+            }
+            int previous = weights[e];
+            if (weight != 0) {
+                weights[e] = weight;
+            } else {
+                edges--;
+                sources[e] = sources[edges];
+                targets[e] = targets[edges];
+                weights[e] = weights[edges];
+            }
+            return previous;
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            int v = labels.indexOf(vertex);
+            if (v < 0) {
+                return false;
+            }
+            int kept = 0;
+            for (int e = 0; e < edges; e++) {
+                if (sources[e] != v && targets[e] != v) {
+                    sources[kept] = sources[e];
+                    targets[kept] = targets[e];
+                    weights[kept] = weights[e];
+                    kept++;
+                }
+            }
+            edges = kept;
+            // move the last vertex into the freed index
+            int last = labels.size() - 1;
+            labels.set(v, labels.get(last));
+            labels.remove(last);
+            for (int e = 0; e < edges; e++) {
+                if (sources[e] == last) {
+                    sources[e] = v;
+                }
+                if (targets[e] == last) {
+                    targets[e] = v;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Set<L> vertices() {
+            return new HashSet<>(labels);
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            Map<L, Integer> result = new HashMap<>();
+            int t = labels.indexOf(target);
+            for (int e = 0; e < edges && t >= 0; e++) {
+                if (targets[e] == t) {
+                    result.put(labels.get(sources[e]), weights[e]);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            Map<L, Integer> result = new HashMap<>();
+            int s = labels.indexOf(source);
+            for (int e = 0; e < edges && s >= 0; e++) {
+                if (sources[e] == s) {
+                    result.put(labels.get(targets[e]), weights[e]);
+                }
+            }
+            return result;
+        }
+    }
+
+    /*
+     * Vertices numbered 0..n-1 through a hash index, edges in a row-major
+     * capacity x capacity matrix of weights where 0 means no edge.
+     */
+    private static class DenseStorage<L> implements Storage<L> {
+
+        private final List<L> labels = new ArrayList<>();
+        private final Map<L, Integer> index = new HashMap<>();
+        private final int limit;
+        private int capacity = 0;
+        private int[] matrix = new int[0];
+        private int edges = 0;
+
+        // Abstraction function:
+        //   Represents the graph with vertices labels and an edge
+        //   labels[i] -> labels[j] of weight matrix[i * capacity + j] for
+        //   every i, j < labels.size() where that weight is nonzero; limit is
+        //   the vertex count past which capacity grows one vertex at a time.
+        // Representation invariant:
+        //   index maps labels[i] to i and has no other keys;
+        //   labels.size() <= capacity; matrix.length == capacity^2; matrix
+        //   entries are nonnegative and zero outside rows and columns
+        //   0..labels.size()-1; edges is the number of nonzero entries
+        // Safety from rep exposure:
+        //   Fields are private and never returned.
+
+        DenseStorage(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public Representation representation() {
+            return Representation.DENSE;
+        }
+
+        @Override
+        public int vertexCount() {
+            return labels.size();
+        }
+
+        @Override
+        public int edgeCount() {
+            return edges;
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            if (index.containsKey(vertex)) {
+                return false;
+            }
+            if (labels.size() == capacity) {
+                // the owner migrates away once the limit is passed, so do not
+                // allocate far beyond it
+                int grown = Math.max(capacity + 1, Math.min(Math.max(8, 2 * capacity), limit));
+                int[] larger = new int[grown * grown];
+                for (int row = 0; row < capacity; row++) {
+                    System.arraycopy(matrix, row * capacity, larger, row * grown, capacity);
+                }
+                matrix = larger;
+                capacity = grown;
+            }
+            index.put(vertex, labels.size());
+            labels.add(vertex);
+            return true;
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            if (weight != 0) {
+                add(source);
+                add(target);
+            }
+            Integer s = index.get(source);
+            Integer t = index.get(target);
+            if (s == null || t == null) {
+                return 0;
+            }
+            int cell = s * capacity + t;
+            int previous = matrix[cell];
+            matrix[cell] = weight;
+            edges += (weight != 0 ? 1 : 0) - (previous != 0 ? 1 : 0);
+            return previous;
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            Integer removed = index.remove(vertex);
+            if (removed == null) {
+                return false;
+            }
+            int v = removed;
+            int n = labels.size();
+            for (int i = 0; i < n; i++) {
+                edges -= (matrix[v * capacity + i] != 0 ? 1 : 0) + (matrix[i * capacity + v] != 0 ? 1 : 0);
+            }
+            edges += matrix[v * capacity + v] != 0 ? 1 : 0;
+            // move the last vertex's row and column into the freed index
+            int last = n - 1;
+            if (v != last) {
+                System.arraycopy(matrix, last * capacity, matrix, v * capacity, n);
+                for (int i = 0; i < n; i++) {
+                    matrix[i * capacity + v] = matrix[i * capacity + last];
+                }
+                L moved = labels.get(last);
+                labels.set(v, moved);
+                index.put(moved, v);
+            }
+            Arrays.fill(matrix, last * capacity, last * capacity + n, 0);
+            for (int i = 0; i < n; i++) {
+                matrix[i * capacity + last] = 0;
+            }
+            labels.remove(last);
+            return true;
+        }
+
+        @Override
+        public Set<L> vertices() {
+            return new HashSet<>(labels);
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            Integer t = index.get(target);
+            return t == null ? new HashMap<>() : collect(t, capacity);
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            Integer s = index.get(source);
+            return s == null ? new HashMap<>() : collect(s * capacity, 1);
+        }
+
+        /*
+         * Collect the nonzero cells matrix[first + i * step] for i < n into a
+         * map from labels[i], where first and step select a row or a column;
+         * counts them first so the map is allocated at its final size.
+         */
+        private Map<L, Integer> collect(int first, int step) {
+            int n = labels.size();
+            int count = 0;
+            for (int i = 0, cell = first; i < n; i++, cell += step) {
+                count += matrix[cell] != 0 ? 1 : 0;
+            }
+            Map<L, Integer> result = new HashMap<>(Math.max(4, (int) (count / 0.75f) + 1));
+            for (int i = 0, cell = first; count > 0 && i < n; i++, cell += step) {
+                int weight = matrix[cell];
+                if (weight != 0) {
+                    result.put(labels.get(i), weight);
+                    count--;
+                }
+            }
+            return result;
+        }
+    }
+
+    // Hashed adjacency maps, outgoing and incoming, for every vertex.
+    private static class SparseStorage<L> implements Storage<L> {
+
+        private final Map<L, Map<L, Integer>> out = new HashMap<>();
+        private final Map<L, Map<L, Integer>> in = new HashMap<>();
+        private int edges = 0;
+
+        // Abstraction function:
+        //   Represents the graph with vertices out.keySet() and an edge
+        //   a -> b of weight out[a][b] for every entry of out[a].
+        // Representation invariant:
+        //   out and in have the same key set; in[b][a] == out[a][b] for every
+        //   edge; all weights are positive; edges is the number of entries in
+        //   all out maps
+        // Safety from rep exposure:
+        //   Fields are private and never returned; observers copy.
+
+        @Override
+        public Representation representation() {
+            return Representation.SPARSE;
+        }
+
+        @Override
+        public int vertexCount() {
+            return out.size();
+        }
+
+        @Override
+        public int edgeCount() {
+            return edges;
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            if (out.containsKey(vertex)) {
+                return false;
+            }
+            out.put(vertex, new HashMap<>());
+            in.put(vertex, new HashMap<>());
+            return true;
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            if (weight != 0) {
+                add(source);
+                add(target);
+            }
+            Map<L, Integer> targets = out.get(source);
+            if (targets == null || !out.containsKey(target)) {
+                return 0;
+            }
+            Integer previous;
+            if (weight == 0) {
+                previous = targets.remove(target);
+                in.get(target).remove(source);
+            } else {
+                previous = targets.put(target, weight);
+                in.get(target).put(source, weight);
+            }
+            edges += (weight != 0 ? 1 : 0) - (previous != null ? 1 : 0);
+            return previous == null ? 0 : previous;
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            Map<L, Integer> targets = out.remove(vertex);
+            if (targets == null) {
+                return false;
+            }
+            Map<L, Integer> sources = in.remove(vertex);
+            edges -= targets.size() + sources.size() - (targets.containsKey(vertex) ? 1 : 0);
+            for (L target : targets.keySet()) {
+                if (!target.equals(vertex)) {
+                    in.get(target).remove(vertex);
+                }
+            }
+            for (L source : sources.keySet()) {
+                if (!source.equals(vertex)) {
+                    out.get(source).remove(vertex);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Set<L> vertices() {
+            return new HashSet<>(out.keySet());
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            return new HashMap<>(in.getOrDefault(target, Collections.emptyMap()));
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            return new HashMap<>(out.getOrDefault(source, Collections.emptyMap()));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package graph;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A Graph that can answer many adjacency queries in one request. Useful when
+ * each individual query is expensive, e.g. because it crosses a process
+ * boundary.
+ * 
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public interface BatchGraph<L> extends Graph<L> {
+    
+    /**
+     * Get the source vertices of many target vertices at once.
+     * 
+     * @param targets labels
+     * @return a map whose key set is the set of given targets, and where the
+     *         value for each key is equal to sources(key)
+     */
+    public Map<L, Map<L, Integer>> sources(Collection<L> targets);
+    
+    /**
+     * Get the target vertices of many source vertices at once.
+     * 
+     * @param sources labels
+     * @return a map whose key set is the set of given sources, and where the
+     *         value for each key is equal to targets(key)
+     */
+    public Map<L, Map<L, Integer>> targets(Collection<L> sources);
+    
+}
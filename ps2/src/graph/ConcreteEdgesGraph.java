@@ -55,8 +55,14 @@ public class ConcreteEdgesGraph implements Graph<String> {
         int existingEdgeIndex = edges.indexOf(newEdge);
         if (existingEdgeIndex != -1) {
             previousWeight = edges.get(existingEdgeIndex).getWeight();
-            edges.set(existingEdgeIndex, newEdge);
-        } else {
+            if (weight != 0) {
+                edges.set(existingEdgeIndex, newEdge);
+            } else {
+                edges.remove(existingEdgeIndex);
+            }
+        } else if (weight != 0) {
+            vertices.add(source);
+            vertices.add(target);
             edges.add(newEdge);
         }
         
@@ -37,35 +37,33 @@ public class ConcreteVerticesGraph implements Graph<String> {
     @Override
     public boolean add(String vertex) {
         checkRep();
-        boolean added = vertices.add(new Vertex(vertex));
+        if (indexOf(vertex) != -1) {
+            return false;
+        }
+        vertices.add(new Vertex(vertex));
         checkRep();
-        return added;
+        return true;
     }
     
     @Override
     public int set(String source, String target, int weight) {
         checkRep();
-        // Implementation of the set method for ConcreteVerticesGraph.
-        // This method is specific to ConcreteVerticesGraph and handles the addition or removal of vertices.
-        int previousWeight = 0;
-        
-        // Check if the source and target vertices exist
-        Vertex sourceVertex = new Vertex(source);
-        Vertex targetVertex = new Vertex(target);
-        
-        int sourceIndex = vertices.indexOf(sourceVertex);
-        int targetIndex = vertices.indexOf(targetVertex);
-        
-        if (sourceIndex != -1 && targetIndex != -1) {
-            // Vertices exist, update the weight
-            previousWeight = sourceVertex.getOutgoingEdges().getOrDefault(target, 0);
-            sourceVertex.getOutgoingEdges().put(target, weight);
-        } else if (weight != 0) {
-            // Vertices do not exist, add them along with the edge
-            vertices.add(sourceVertex);
-            vertices.add(targetVertex);
-            sourceVertex.getOutgoingEdges().put(target, weight);
+        // Edges are stored in the source's own Vertex, so look up the stored
+        // vertices rather than mutating fresh ones.
+        int sourceIndex = indexOf(source);
+        if (weight == 0 && sourceIndex == -1) {
+            return 0;
         }
+        if (weight != 0) {
+            if (sourceIndex == -1) {
+                vertices.add(new Vertex(source));
+                sourceIndex = vertices.size() - 1;
+            }
+            if (indexOf(target) == -1) {
+                vertices.add(new Vertex(target));
+            }
+        }
+        int previousWeight = vertices.get(sourceIndex).setEdge(target, weight);
         
         checkRep();
         return previousWeight;
@@ -74,11 +72,10 @@ public class ConcreteVerticesGraph implements Graph<String> {
     @Override
     public boolean remove(String vertex) {
         checkRep();
-        Vertex removedVertex = new Vertex(vertex);
-        boolean removed = vertices.remove(removedVertex);
+        boolean removed = vertices.remove(new Vertex(vertex));
         
         // Remove edges associated with the removed vertex
-        vertices.forEach(v -> v.getOutgoingEdges().remove(vertex));
+        vertices.forEach(v -> v.setEdge(vertex, 0));
         
         checkRep();
         return removed;
@@ -97,7 +94,7 @@ public class ConcreteVerticesGraph implements Graph<String> {
         
         // Collect sources for the target vertex
         vertices.forEach(v -> {
-            int weight = v.getOutgoingEdges().getOrDefault(target, 0);
+            int weight = v.getWeight(target);
             if (weight != 0) {
                 sources.put(v.getLabel(), weight);
             }
@@ -113,8 +110,7 @@ public class ConcreteVerticesGraph implements Graph<String> {
         // This method is specific to ConcreteVerticesGraph and collects the targets for a given source vertex.
         Map<String, Integer> targets = new HashMap<>();
         
-        Vertex sourceVertex = new Vertex(source);
-        int sourceIndex = vertices.indexOf(sourceVertex);
+        int sourceIndex = indexOf(source);
         
         if (sourceIndex != -1) {
             // Source vertex exists, collect targets
@@ -124,6 +120,11 @@ public class ConcreteVerticesGraph implements Graph<String> {
         return targets;
     }
     
+    // Index of the vertex with the given label in vertices, or -1 if none.
+    private int indexOf(String label) {
+        return vertices.indexOf(new Vertex(label));
+    }
+    
     @Override
     public String toString() {
         checkRep();
@@ -145,7 +146,8 @@ class Vertex {
     // Label must not be null.
     
     // Safety from rep exposure:
-    // The label and outgoingEdges are private and final. No mutators provided.
+    // The label and outgoingEdges are private and final; getOutgoingEdges()
+    // returns a copy, so edges only change through setEdge().
     
     // Constructor:
     public Vertex(String label) {
@@ -168,6 +170,26 @@ class Vertex {
         return new HashMap<>(outgoingEdges); // Return a copy to prevent modification outside the class
     }
     
+    /**
+     * @param target label of a target vertex
+     * @return the weight of the edge from this vertex to target, or 0 if none
+     */
+    public int getWeight(String target) {
+        return outgoingEdges.getOrDefault(target, 0);
+    }
+    
+    /**
+     * Set, change, or remove the edge from this vertex to target.
+     * 
+     * @param target label of the target vertex
+     * @param weight nonnegative weight of the edge; 0 removes the edge
+     * @return the previous weight of the edge, or 0 if there was none
+     */
+    public int setEdge(String target, int weight) {
+        Integer previous = weight == 0 ? outgoingEdges.remove(target) : outgoingEdges.put(target, weight);
+        return previous == null ? 0 : previous;
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -0,0 +1,94 @@
+package graph;
+
+import java.util.Objects;
+
+/**
+ * An immutable difference in one edge between two versions of a graph: the
+ * edge was added, removed, or changed weight.
+ */
+public class EdgeChange {
+    
+    /** How the edge differs. */
+    public enum Kind { ADDED, REMOVED, CHANGED }
+    
+    private final String source;
+    private final String target;
+    private final int before;
+    private final int after;
+    
+    // Abstraction function:
+    //   Represents the edge source -> target going from weight `before` to
+    //   weight `after`, where weight 0 means the edge is absent.
+    // Representation invariant:
+    //   source and target are not null; before >= 0, after >= 0,
+    //   before != after
+    // Safety from rep exposure:
+    //   Fields are private, final, and of immutable types.
+    
+    /**
+     * Create an edge change.
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param before weight of the edge before, or 0 if it was absent
+     * @param after weight of the edge after, or 0 if it is absent; must
+     *        differ from before
+     */
+    public EdgeChange(String source, String target, int before, int after) {
+        this.source = source;
+        this.target = target;
+        this.before = before;
+        this.after = after;
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert source != null && target != null : "Label is null";
+        assert before >= 0 && after >= 0 : "Negative weight";
+        assert before != after : "Edge is unchanged";
+    }
+    
+    /** @return how the edge differs */
+    public Kind getKind() {
+        return before == 0 ? Kind.ADDED : after == 0 ? Kind.REMOVED : Kind.CHANGED;
+    }
+    
+    /** @return label of the source vertex */
+    public String getSource() {
+        return source;
+    }
+    
+    /** @return label of the target vertex */
+    public String getTarget() {
+        return target;
+    }
+    
+    /** @return weight of the edge before, or 0 if it was absent */
+    public int getBefore() {
+        return before;
+    }
+    
+    /** @return weight of the edge after, or 0 if it is absent */
+    public int getAfter() {
+        return after;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        EdgeChange that = (EdgeChange) obj;
+        return source.equals(that.source) && target.equals(that.target)
+                && before == that.before && after == that.after;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(source, target, before, after);
+    }
+    
+    @Override
+    public String toString() {
+        return source + " -> " + target + ": " + before + " => " + after;
+    }
+}
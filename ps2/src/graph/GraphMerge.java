@@ -0,0 +1,315 @@
+package graph;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Merge and diff of Graph&lt;String&gt; snapshots, computed directly on the
+ * sorted rows of WeightMatrix instances.
+ *
+ * <p>Both operations first take the sorted union of the inputs' labels, so
+ * that each input row maps onto a row of the result with its target indices
+ * still sorted. Rows of the result are then computed independently, in
+ * parallel over contiguous ranges of rows: a merged row is a k-way merge of
+ * the corresponding input rows, and a diff row a two-way merge of the before
+ * and after rows. No per-vertex maps are built.
+ */
+public final class GraphMerge {
+
+    /** Rows handed to one parallel task. */
+    static final int CHUNK_ROWS = 1024;
+
+    private GraphMerge() {
+        throw new AssertionError("uninstantiable");
+    }
+
+    /**
+     * Merge graphs by summing weights.
+     *
+     * @param graphs graphs to merge
+     * @return a matrix with the union of the vertices of graphs, and an edge
+     *         from a to b iff some graph has one, weighted by the sum of the
+     *         weights of a to b over all graphs
+     * @throws ArithmeticException if a summed weight overflows an int
+     */
+    public static WeightMatrix mergeGraphs(List<? extends Graph<String>> graphs) {
+        List<WeightMatrix> matrices = graphs.parallelStream()
+                .map(WeightMatrix::of)
+                .collect(Collectors.toList());
+        return merge(matrices);
+    }
+
+    /**
+     * Merge snapshots by summing weights.
+     *
+     * @param matrices snapshots to merge
+     * @return a matrix with the union of the vertices of matrices, and an edge
+     *         from a to b iff some matrix has one, weighted by the sum of the
+     *         weights of a to b over all matrices
+     * @throws ArithmeticException if a summed weight overflows an int
+     */
+    public static WeightMatrix merge(List<WeightMatrix> matrices) {
+        WeightMatrix[] inputs = matrices.toArray(new WeightMatrix[0]);
+        String[] labels = unionLabels(inputs);
+        int[][] toUnion = new int[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            toUnion[i] = toUnion(inputs[i], labels);
+        }
+
+        int chunks = (labels.length + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        MergedChunk[] merged = new MergedChunk[chunks];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * CHUNK_ROWS;
+            int to = Math.min(labels.length, from + CHUNK_ROWS);
+            merged[chunk] = mergeRows(inputs, toUnion, from, to);
+        });
+
+        int[] rowStart = new int[labels.length + 1];
+        int[] chunkStart = new int[chunks + 1];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            chunkStart[chunk + 1] = chunkStart[chunk] + merged[chunk].size;
+        }
+        int[] columns = new int[chunkStart[chunks]];
+        int[] weights = new int[columns.length];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            MergedChunk part = merged[chunk];
+            int from = chunk * CHUNK_ROWS;
+            for (int row = 0; row < part.rowEnd.length; row++) {
+                rowStart[from + row + 1] = chunkStart[chunk] + part.rowEnd[row];
+            }
+            System.arraycopy(part.columns, 0, columns, chunkStart[chunk], part.size);
+            System.arraycopy(part.weights, 0, weights, chunkStart[chunk], part.size);
+        });
+        return WeightMatrix.fromRows(labels, rowStart, columns, weights);
+    }
+
+    // The merged rows [from, to) of a merge, with row ends relative to the
+    // start of the chunk.
+    private static class MergedChunk {
+        final int[] rowEnd;
+        int[] columns = new int[16];
+        int[] weights = new int[16];
+        int size = 0;
+
+        MergedChunk(int rows) {
+            rowEnd = new int[rows];
+        }
+
+        void append(int column, int weight) {
+            if (size == columns.length) {
+                columns = Arrays.copyOf(columns, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            columns[size] = column;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    /*
+     * K-way merge of rows [from, to) of the union: for every union row, a
+     * min-heap holds the inputs that still have edges in that row, keyed by
+     * the union index of their next target.
+     */
+    private static MergedChunk mergeRows(WeightMatrix[] inputs, int[][] toUnion, int from, int to) {
+        MergedChunk chunk = new MergedChunk(to - from);
+        int[] localRow = new int[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            localRow[i] = lowerBound(toUnion[i], from);
+        }
+        int[] cursor = new int[inputs.length];
+        int[] end = new int[inputs.length];
+        int[] heap = new int[inputs.length];
+        for (int row = from; row < to; row++) {
+            int size = 0;
+            for (int i = 0; i < inputs.length; i++) {
+                int local = localRow[i];
+                if (local < toUnion[i].length && toUnion[i][local] == row) {
+                    localRow[i]++;
+                    cursor[i] = inputs[i].rowStart(local);
+                    end[i] = inputs[i].rowStart(local + 1);
+                    if (cursor[i] < end[i]) {
+                        heap[size] = i;
+                        siftUp(heap, size++, inputs, toUnion, cursor);
+                    }
+                }
+            }
+            int column = -1;
+            int weight = 0;
+            while (size > 0) {
+                int i = heap[0];
+                int next = key(i, inputs, toUnion, cursor);
+                if (next != column) {
+                    if (column >= 0) {
+                        chunk.append(column, weight);
+                    }
+                    column = next;
+                    weight = 0;
+                }
+                weight = Math.addExact(weight, inputs[i].weight(cursor[i]));
+                if (++cursor[i] == end[i]) {
+                    heap[0] = heap[--size];
+                }
+                siftDown(heap, size, inputs, toUnion, cursor);
+            }
+            if (column >= 0) {
+                chunk.append(column, weight);
+            }
+            chunk.rowEnd[row - from] = chunk.size;
+        }
+        return chunk;
+    }
+
+    private static int key(int i, WeightMatrix[] inputs, int[][] toUnion, int[] cursor) {
+        return toUnion[i][inputs[i].column(cursor[i])];
+    }
+
+    private static void siftUp(int[] heap, int i, WeightMatrix[] inputs, int[][] toUnion, int[] cursor) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (key(heap[parent], inputs, toUnion, cursor) <= key(heap[i], inputs, toUnion, cursor)) {
+                return;
+            }
+            int swap = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = swap;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, WeightMatrix[] inputs, int[][] toUnion, int[] cursor) {
+        int i = 0;
+        while (true) {
+            int least = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (key(heap[child], inputs, toUnion, cursor) < key(heap[least], inputs, toUnion, cursor)) {
+                    least = child;
+                }
+            }
+            if (least == i) {
+                return;
+            }
+            int swap = heap[least];
+            heap[least] = heap[i];
+            heap[i] = swap;
+            i = least;
+        }
+    }
+
+    /**
+     * Compute the edge differences between two graphs.
+     *
+     * @param before earlier graph
+     * @param after later graph
+     * @return as diff(WeightMatrix.of(before), WeightMatrix.of(after))
+     */
+    public static List<EdgeChange> diff(Graph<String> before, Graph<String> after) {
+        return diff(WeightMatrix.of(before), WeightMatrix.of(after));
+    }
+
+    /**
+     * Compute the edge differences between two snapshots.
+     *
+     * @param before earlier snapshot
+     * @param after later snapshot
+     * @return one change for every edge whose weight differs between before
+     *         and after, counting absent edges as weight 0, ordered by source
+     *         label and then target label
+     */
+    public static List<EdgeChange> diff(WeightMatrix before, WeightMatrix after) {
+        WeightMatrix[] inputs = { before, after };
+        String[] labels = unionLabels(inputs);
+        int[] beforeToUnion = toUnion(before, labels);
+        int[] afterToUnion = toUnion(after, labels);
+
+        int chunks = (labels.length + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        List<List<EdgeChange>> parts = IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> diffRows(before, beforeToUnion, after, afterToUnion, labels,
+                        chunk * CHUNK_ROWS, Math.min(labels.length, (chunk + 1) * CHUNK_ROWS)))
+                .collect(Collectors.toList());
+        List<EdgeChange> changes = new ArrayList<>();
+        for (List<EdgeChange> part : parts) {
+            changes.addAll(part);
+        }
+        return changes;
+    }
+
+    // Two-way merge of rows [from, to) of the union of before and after.
+    private static List<EdgeChange> diffRows(WeightMatrix before, int[] beforeToUnion,
+            WeightMatrix after, int[] afterToUnion, String[] labels, int from, int to) {
+        List<EdgeChange> changes = new ArrayList<>();
+        int beforeRow = lowerBound(beforeToUnion, from);
+        int afterRow = lowerBound(afterToUnion, from);
+        for (int row = from; row < to; row++) {
+            int b = 0, bEnd = 0, a = 0, aEnd = 0;
+            if (beforeRow < beforeToUnion.length && beforeToUnion[beforeRow] == row) {
+                b = before.rowStart(beforeRow);
+                bEnd = before.rowStart(++beforeRow);
+            }
+            if (afterRow < afterToUnion.length && afterToUnion[afterRow] == row) {
+                a = after.rowStart(afterRow);
+                aEnd = after.rowStart(++afterRow);
+            }
+            while (b < bEnd || a < aEnd) {
+                int bColumn = b < bEnd ? beforeToUnion[before.column(b)] : Integer.MAX_VALUE;
+                int aColumn = a < aEnd ? afterToUnion[after.column(a)] : Integer.MAX_VALUE;
+                if (bColumn < aColumn) {
+                    changes.add(new EdgeChange(labels[row], labels[bColumn], before.weight(b++), 0));
+                } else if (aColumn < bColumn) {
+                    changes.add(new EdgeChange(labels[row], labels[aColumn], 0, after.weight(a++)));
+                } else {
+                    int bWeight = before.weight(b++);
+                    int aWeight = after.weight(a++);
+                    if (bWeight != aWeight) {
+                        changes.add(new EdgeChange(labels[row], labels[aColumn], bWeight, aWeight));
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    // Sorted union of the labels of matrices, by k-way merge of their label orders.
+    private static String[] unionLabels(WeightMatrix[] matrices) {
+        // heads are {matrix, vertex index} pairs, ordered by label
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, matrices.length),
+                (x, y) -> matrices[x[0]].label(x[1]).compareTo(matrices[y[0]].label(y[1])));
+        for (int i = 0; i < matrices.length; i++) {
+            if (matrices[i].size() > 0) {
+                heads.add(new int[] { i, 0 });
+            }
+        }
+        List<String> labels = new ArrayList<>();
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            String label = matrices[head[0]].label(head[1]);
+            if (labels.isEmpty() || !labels.get(labels.size() - 1).equals(label)) {
+                labels.add(label);
+            }
+            if (++head[1] < matrices[head[0]].size()) {
+                heads.add(head);
+            }
+        }
+        return labels.toArray(new String[0]);
+    }
+
+    // Map every vertex index of matrix to its index in the sorted union labels.
+    private static int[] toUnion(WeightMatrix matrix, String[] labels) {
+        int[] map = new int[matrix.size()];
+        int j = 0;
+        for (int i = 0; i < map.length; i++) {
+            while (!labels[j].equals(matrix.label(i))) {
+                j++;
+            }
+            map[i] = j;
+        }
+        return map;
+    }
+
+    // Smallest i such that sorted[i] >= value, or sorted.length if none.
+    private static int lowerBound(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return index >= 0 ? index : -index - 1;
+    }
+}
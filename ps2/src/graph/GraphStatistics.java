@@ -0,0 +1,203 @@
+package graph;
+
+import java.util.*;
+
+/**
+ * Degree statistics of a graph, maintained incrementally as the graph is
+ * mutated: exact in- and out-degree of every vertex, histograms of those
+ * degrees, a Space-Saving summary of the heaviest vertices (by total
+ * degree), and the heaviest edges (by weight).
+ * 
+ * <p>Instances are obtained from {@link StatisticsGraph#statistics()} and are
+ * read-only live views of that graph.
+ * 
+ * @param <L> type of vertex labels, must be immutable
+ */
+public class GraphStatistics<L> {
+    
+    /** Number of histogram buckets; bucket i > 0 counts degrees in [2^(i-1), 2^i). */
+    public static final int BUCKETS = Integer.SIZE;
+    
+    private static final int IN = 0;
+    private static final int OUT = 1;
+    
+    private final Map<L, int[]> degrees = new HashMap<>();
+    private final long[] inHistogram = new long[BUCKETS];
+    private final long[] outHistogram = new long[BUCKETS];
+    private final SpaceSaving<L> heavyVertices;
+    private final SpaceSaving<Map.Entry<L, L>> heavyEdges;
+    private long edgeCount = 0;
+    
+    // Abstraction function:
+    //   Represents the statistics of the graph whose vertices are the keys of
+    //   degrees, where degrees[v] = {in-degree of v, out-degree of v}, which
+    //   has edgeCount edges, and whose heaviest vertices and edges are
+    //   summarized by heavyVertices and heavyEdges.
+    // Representation invariant:
+    //   all degrees are nonnegative
+    //   inHistogram[b] (resp. outHistogram[b]) is the number of vertices whose
+    //   in-degree (resp. out-degree) falls in bucket b
+    //   edgeCount is the sum of all out-degrees
+    // Safety from rep exposure:
+    //   All fields are private and final; observers return copies. Mutators
+    //   are package-private and used only by StatisticsGraph.
+    
+    GraphStatistics(int heavyCapacity) {
+        heavyVertices = new SpaceSaving<>(heavyCapacity);
+        heavyEdges = new SpaceSaving<>(heavyCapacity);
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert edgeCount >= 0 : "Negative edge count";
+        assert sum(inHistogram) == degrees.size() : "In-degree histogram out of step";
+        assert sum(outHistogram) == degrees.size() : "Out-degree histogram out of step";
+    }
+    
+    private static long sum(long[] histogram) {
+        long sum = 0;
+        for (long count : histogram) {
+            sum += count;
+        }
+        return sum;
+    }
+    
+    /**
+     * @param degree a nonnegative degree
+     * @return the histogram bucket of degree: 0 for degree 0, otherwise
+     *         1 + floor(log2(degree))
+     */
+    public static int bucket(int degree) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(degree);
+    }
+    
+    void vertexAdded(L vertex) {
+        if (degrees.putIfAbsent(vertex, new int[2]) == null) {
+            inHistogram[0]++;
+            outHistogram[0]++;
+        }
+        checkRep();
+    }
+    
+    void vertexRemoved(L vertex) {
+        int[] degree = degrees.remove(vertex);
+        if (degree != null) {
+            inHistogram[bucket(degree[IN])]--;
+            outHistogram[bucket(degree[OUT])]--;
+            heavyVertices.remove(vertex);
+        }
+        checkRep();
+    }
+    
+    void edgeChanged(L source, L target, int previousWeight, int weight) {
+        if (previousWeight == 0 && weight != 0) {
+            shift(source, OUT, outHistogram, 1);
+            shift(target, IN, inHistogram, 1);
+            edgeCount++;
+        } else if (previousWeight != 0 && weight == 0) {
+            shift(source, OUT, outHistogram, -1);
+            shift(target, IN, inHistogram, -1);
+            edgeCount--;
+        }
+        Map.Entry<L, L> edge = new AbstractMap.SimpleImmutableEntry<>(source, target);
+        if (weight == 0) {
+            heavyEdges.remove(edge);
+        } else {
+            heavyEdges.put(edge, weight);
+        }
+        checkRep();
+    }
+    
+    private void shift(L vertex, int direction, long[] histogram, int delta) {
+        int[] degree = degrees.get(vertex);
+        histogram[bucket(degree[direction])]--;
+        degree[direction] += delta;
+        histogram[bucket(degree[direction])]++;
+        heavyVertices.add(vertex, delta);
+    }
+    
+    /** @return the number of vertices */
+    public int vertexCount() {
+        return degrees.size();
+    }
+    
+    /** @return the number of edges */
+    public long edgeCount() {
+        return edgeCount;
+    }
+    
+    /**
+     * @param vertex a label
+     * @return the number of edges into vertex, or 0 if it is not in the graph
+     */
+    public int inDegree(L vertex) {
+        int[] degree = degrees.get(vertex);
+        return degree == null ? 0 : degree[IN];
+    }
+    
+    /**
+     * @param vertex a label
+     * @return the number of edges out of vertex, or 0 if it is not in the graph
+     */
+    public int outDegree(L vertex) {
+        int[] degree = degrees.get(vertex);
+        return degree == null ? 0 : degree[OUT];
+    }
+    
+    /**
+     * @param vertex a label
+     * @return inDegree(vertex) + outDegree(vertex)
+     */
+    public int degree(L vertex) {
+        return inDegree(vertex) + outDegree(vertex);
+    }
+    
+    /**
+     * @return an array of length BUCKETS whose element b is the number of
+     *         vertices with in-degree in bucket b, as defined by bucket(int)
+     */
+    public long[] inDegreeHistogram() {
+        return inHistogram.clone();
+    }
+    
+    /**
+     * @return an array of length BUCKETS whose element b is the number of
+     *         vertices with out-degree in bucket b, as defined by bucket(int)
+     */
+    public long[] outDegreeHistogram() {
+        return outHistogram.clone();
+    }
+    
+    /**
+     * Get the vertices with the largest total degree, as estimated by a
+     * Space-Saving summary. Every vertex whose degree exceeds a
+     * 1/capacity share of the sum of all degrees is reported if k is large
+     * enough.
+     * 
+     * @param k maximum number of vertices, nonnegative
+     * @return up to k vertices mapped to their estimated total degree, in
+     *         decreasing order of estimate
+     */
+    public Map<L, Long> heaviestVertices(int k) {
+        return heavyVertices.top(k);
+    }
+    
+    /**
+     * Get the edges with the largest weight. Weights reported are exact, and
+     * while edge weights only grow the edges reported are the heaviest; once
+     * a weight is lowered or an edge removed, an untracked edge heavier than
+     * a reported one may be missed until its weight is next set.
+     * 
+     * @param k maximum number of edges, nonnegative
+     * @return up to k (source, target) pairs mapped to their weight, in
+     *         decreasing order of weight
+     */
+    public Map<Map.Entry<L, L>, Long> heaviestEdges(int k) {
+        return heavyEdges.top(k);
+    }
+    
+    @Override
+    public String toString() {
+        return "GraphStatistics(" + degrees.size() + " vertices, " + edgeCount + " edges)";
+    }
+}
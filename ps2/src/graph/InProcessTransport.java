@@ -0,0 +1,69 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A ShardTransport whose shards all live in the current JVM. Requests are
+ * applied directly, without serialization.
+ */
+public class InProcessTransport implements ShardTransport {
+    
+    private final List<ShardServer> shards = new ArrayList<>();
+    private final List<Graph<String>> locals = new ArrayList<>();
+    
+    // Abstraction function:
+    //   Represents a transport to the shards in `shards`, in index order.
+    // Representation invariant:
+    //   shards is non-empty, and shards.size() == locals.size()
+    // Safety from rep exposure:
+    //   Fields are private and final and never returned.
+    
+    /**
+     * Create a transport to new in-process shards.
+     * 
+     * @param shardCount number of shards, positive
+     * @param localGraphs produces a new empty graph for each shard's storage;
+     *        graphs that are AutoCloseable are closed by {@link #close()}
+     */
+    public InProcessTransport(int shardCount, Supplier<? extends Graph<String>> localGraphs) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shard count must be positive: " + shardCount);
+        }
+        for (int i = 0; i < shardCount; i++) {
+            Graph<String> local = localGraphs.get();
+            locals.add(local);
+            shards.add(new ShardServer(i, shardCount, local));
+        }
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert !shards.isEmpty() : "No shards";
+        assert shards.size() == locals.size() : "Shard storage out of step";
+    }
+    
+    @Override
+    public int shardCount() {
+        return shards.size();
+    }
+    
+    @Override
+    public List<Object> call(int shard, List<ShardOp> ops) {
+        return shards.get(shard).apply(ops);
+    }
+    
+    @Override
+    public void close() {
+        for (Graph<String> local : locals) {
+            if (local instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) local).close();
+                } catch (Exception e) {
+                    throw new IllegalStateException("cannot close shard storage", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package graph;
+
+import java.util.*;
+
+/**
+ * An implementation of Graph that keeps its adjacency outside the Java heap.
+ *
+ * <p>Only the label dictionary lives on the heap; vertex heads, edge records,
+ * weights and the edge index are stored in native memory, so a graph with a
+ * very large number of edges adds almost nothing for the garbage collector to
+ * trace. Storage is split into segments addressed with long offsets, so it is
+ * not bounded by the 2 GB limit of a single buffer; a graph holds at most
+ * {@link #MAX_EDGES} edges and as many vertices, and throws
+ * IllegalStateException when asked to hold more.
+ *
+ * <p>Edges are found through a hash index on (source, target), and each edge
+ * is linked into doubly linked out- and in-lists, so set() takes expected
+ * constant time and remove() time proportional to the vertex's degree.
+ *
+ * <p>The graph must be closed when no longer needed; any use of a closed graph
+ * throws IllegalStateException.
+ */
+public class OffHeapGraph implements Graph<String>, AutoCloseable {
+
+    /** Largest number of edges, and of vertices, an off-heap graph can hold. */
+    public static final int MAX_EDGES = Integer.MAX_VALUE - 1;
+
+    /** Default number of ints per storage segment: 64 MB segments. */
+    static final int DEFAULT_SEGMENT_INTS = 1 << 24;
+
+    private static final int NIL = -1;
+    private static final int TOMBSTONE = -2;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Layout of a vertex slot, in ints
+    private static final int OUT_HEAD = 0;
+    private static final int IN_HEAD = 1;
+    private static final int VERTEX_INTS = 2;
+
+    // Layout of an edge record, in ints
+    private static final int SOURCE = 0;
+    private static final int TARGET = 1;
+    private static final int WEIGHT = 2;
+    private static final int NEXT_OUT = 3;
+    private static final int PREV_OUT = 4;
+    private static final int NEXT_IN = 5;
+    private static final int PREV_IN = 6;
+    private static final int EDGE_INTS = 7;
+
+    private final int segmentInts;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> labels = new ArrayList<>();
+
+    private final OffHeapInts<?> vertexTable;
+    private final OffHeapInts<?> edgeTable;
+    private OffHeapInts<?> edgeIndex;
+    private long indexSlots = 0;
+    private long indexUsed = 0;
+    private int vertexSlots = 0;
+    private int edgeSlots = 0;
+    private int freeVertex = NIL;
+    private int freeEdge = NIL;
+    private int edgeCount = 0;
+    private boolean closed = false;
+
+    // Abstraction function:
+    //   Represents the weighted directed graph whose vertices are the keys of
+    //   ids, and which has an edge source -> target of weight w for every live
+    //   edge record (labels[SOURCE], labels[TARGET], WEIGHT = w).
+    //   Every live edge record is linked into the out-list headed at its source
+    //   slot and into the in-list headed at its target slot.
+    // Representation invariant:
+    //   ids maps each label to a slot id < vertexSlots with labels[id] equal to
+    //   that label; slots not in ids have labels[id] == null and are chained
+    //   through OUT_HEAD starting at freeVertex.
+    //   Free edge records are chained through NEXT_OUT starting at freeEdge.
+    //   Every live edge has a nonzero weight and both endpoints are live, and
+    //   no two live edges share the same source and target; in every list,
+    //   PREV of each record is the record before it, or NIL for the head.
+    //   edgeIndex is an open-addressing table of indexSlots slots (a power of
+    //   two), holding each live edge id exactly once, TOMBSTONE, or NIL;
+    //   indexUsed counts non-NIL slots and is at most indexSlots / 2.
+    //   edgeCount is the number of live edge records.
+    // Safety from rep exposure:
+    //   All fields are private; the storage never leaves this class, and
+    //   observers return freshly built collections.
+
+    /** Create an empty off-heap graph. */
+    public OffHeapGraph() {
+        this(DEFAULT_SEGMENT_INTS);
+    }
+
+    /**
+     * Create an empty off-heap graph with storage segments of the given size;
+     * small segments let tests exercise segment boundaries.
+     *
+     * @param segmentInts ints per storage segment, a power of two in
+     *        [16, 2^28]
+     */
+    OffHeapGraph(int segmentInts) {
+        if (segmentInts < 16 || segmentInts > 1 << 28 || Integer.bitCount(segmentInts) != 1) {
+            throw new IllegalArgumentException("segment size must be a power of two in [16, 2^28]: " + segmentInts);
+        }
+        this.segmentInts = segmentInts;
+        this.vertexTable = OffHeapInts.allocate(segmentInts, INITIAL_CAPACITY * VERTEX_INTS);
+        this.edgeTable = OffHeapInts.allocate(segmentInts, INITIAL_CAPACITY * EDGE_INTS);
+        this.edgeIndex = newIndex(INITIAL_CAPACITY * 2);
+        checkRep();
+    }
+
+    // checkRep method:
+    private void checkRep() {
+        if (closed) {
+            return;
+        }
+        assert labels.size() == vertexSlots : "Label dictionary out of step with vertex slots";
+        assert ids.size() <= vertexSlots : "More labels than vertex slots";
+        assert edgeCount >= 0 && edgeCount <= edgeSlots : "Edge count out of range";
+        assert Long.bitCount(indexSlots) == 1 && indexUsed * 2 <= indexSlots : "Edge index overfull";
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("graph has been closed");
+        }
+    }
+
+    private int vertexInt(int vertex, int field) {
+        return vertexTable.get((long) vertex * VERTEX_INTS + field);
+    }
+
+    private void setVertexInt(int vertex, int field, int value) {
+        vertexTable.put((long) vertex * VERTEX_INTS + field, value);
+    }
+
+    private int edgeInt(int edge, int field) {
+        return edgeTable.get((long) edge * EDGE_INTS + field);
+    }
+
+    private void setEdgeInt(int edge, int field, int value) {
+        edgeTable.put((long) edge * EDGE_INTS + field, value);
+    }
+
+    private int idOf(String vertex) {
+        Integer id = ids.get(vertex);
+        return id == null ? NIL : id;
+    }
+
+    private int intern(String vertex) {
+        Integer existing = ids.get(vertex);
+        if (existing != null) {
+            return existing;
+        }
+        int id;
+        if (freeVertex != NIL) {
+            id = freeVertex;
+            freeVertex = vertexInt(id, OUT_HEAD);
+            labels.set(id, vertex);
+        } else {
+            if (vertexSlots == MAX_EDGES) {
+                throw new IllegalStateException("OffHeapGraph is full: " + MAX_EDGES + " vertices");
+            }
+            vertexTable.ensure(((long) vertexSlots + 1) * VERTEX_INTS);
+            id = vertexSlots++;
+            labels.add(vertex);
+        }
+        setVertexInt(id, OUT_HEAD, NIL);
+        setVertexInt(id, IN_HEAD, NIL);
+        ids.put(vertex, id);
+        return id;
+    }
+
+    private OffHeapInts<?> newIndex(long slots) {
+        OffHeapInts<?> index = OffHeapInts.allocate(segmentInts, slots);
+        index.fill(0, slots, NIL);
+        indexSlots = slots;
+        indexUsed = 0;
+        return index;
+    }
+
+    private long home(int source, int target) {
+        long h = (((long) source << 32) | (target & 0xffffffffL)) * 0x9E3779B97F4A7C15L;
+        return (h ^ (h >>> 29)) & (indexSlots - 1);
+    }
+
+    // Slot of the index holding the edge source -> target, or NIL if none.
+    private long findSlot(int source, int target) {
+        for (long slot = home(source, target); ; slot = (slot + 1) & (indexSlots - 1)) {
+            int e = edgeIndex.get(slot);
+            if (e == NIL) {
+                return NIL;
+            }
+            if (e != TOMBSTONE && edgeInt(e, SOURCE) == source && edgeInt(e, TARGET) == target) {
+                return slot;
+            }
+        }
+    }
+
+    private int findEdge(int source, int target) {
+        long slot = findSlot(source, target);
+        return slot == NIL ? NIL : edgeIndex.get(slot);
+    }
+
+    // Add live edge e, known not to be in the index yet.
+    private void indexEdge(int e) {
+        if ((indexUsed + 1) * 2 > indexSlots) {
+            rehash();
+        }
+        for (long slot = home(edgeInt(e, SOURCE), edgeInt(e, TARGET)); ; slot = (slot + 1) & (indexSlots - 1)) {
+            int current = edgeIndex.get(slot);
+            if (current == NIL || current == TOMBSTONE) {
+                edgeIndex.put(slot, e);
+                if (current == NIL) {
+                    indexUsed++;
+                }
+                return;
+            }
+        }
+    }
+
+    // Rebuild the index without tombstones, at least four slots per edge.
+    private void rehash() {
+        OffHeapInts<?> old = edgeIndex;
+        long oldSlots = indexSlots;
+        long slots = INITIAL_CAPACITY * 2;
+        while (slots < 4L * (edgeCount + 1)) {
+            slots *= 2;
+        }
+        edgeIndex = newIndex(slots);
+        for (long slot = 0; slot < oldSlots; slot++) {
+            int e = old.get(slot);
+            if (e >= 0) {
+                indexEdge(e);
+            }
+        }
+        old.free();
+    }
+
+    private void insertEdge(int source, int target, int weight) {
+        int e;
+        if (freeEdge != NIL) {
+            e = freeEdge;
+            freeEdge = edgeInt(e, NEXT_OUT);
+        } else {
+            if (edgeSlots == MAX_EDGES) {
+                throw new IllegalStateException("OffHeapGraph is full: " + MAX_EDGES + " edges");
+            }
+            edgeTable.ensure(((long) edgeSlots + 1) * EDGE_INTS);
+            e = edgeSlots++;
+        }
+        setEdgeInt(e, SOURCE, source);
+        setEdgeInt(e, TARGET, target);
+        setEdgeInt(e, WEIGHT, weight);
+        link(source, OUT_HEAD, NEXT_OUT, PREV_OUT, e);
+        link(target, IN_HEAD, NEXT_IN, PREV_IN, e);
+        indexEdge(e);
+        edgeCount++;
+    }
+
+    // Push edge e onto the front of the list headed at (vertex, head).
+    private void link(int vertex, int head, int next, int prev, int e) {
+        int first = vertexInt(vertex, head);
+        setEdgeInt(e, next, first);
+        setEdgeInt(e, prev, NIL);
+        if (first != NIL) {
+            setEdgeInt(first, prev, e);
+        }
+        setVertexInt(vertex, head, e);
+    }
+
+    // Unlink edge e from the list headed at (vertex, head).
+    private void unlink(int vertex, int head, int next, int prev, int e) {
+        int before = edgeInt(e, prev);
+        int after = edgeInt(e, next);
+        if (before == NIL) {
+            setVertexInt(vertex, head, after);
+        } else {
+            setEdgeInt(before, next, after);
+        }
+        if (after != NIL) {
+            setEdgeInt(after, prev, before);
+        }
+    }
+
+    private void deleteEdge(int e) {
+        int source = edgeInt(e, SOURCE);
+        int target = edgeInt(e, TARGET);
+        edgeIndex.put(findSlot(source, target), TOMBSTONE);
+        unlink(source, OUT_HEAD, NEXT_OUT, PREV_OUT, e);
+        unlink(target, IN_HEAD, NEXT_IN, PREV_IN, e);
+        setEdgeInt(e, NEXT_OUT, freeEdge);
+        freeEdge = e;
+        edgeCount--;
+    }
+
+    @Override
+    public boolean add(String vertex) {
+        ensureOpen();
+        checkRep();
+        if (ids.containsKey(vertex)) {
+            return false;
+        }
+        intern(vertex);
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public int set(String source, String target, int weight) {
+        ensureOpen();
+        checkRep();
+        int previousWeight = 0;
+        if (weight != 0) {
+            int s = intern(source);
+            int t = intern(target);
+            int e = findEdge(s, t);
+            if (e != NIL) {
+                previousWeight = edgeInt(e, WEIGHT);
+                setEdgeInt(e, WEIGHT, weight);
+            } else {
+                insertEdge(s, t, weight);
+            }
+        } else {
+            int s = idOf(source);
+            int t = idOf(target);
+            int e = (s == NIL || t == NIL) ? NIL : findEdge(s, t);
+            if (e != NIL) {
+                previousWeight = edgeInt(e, WEIGHT);
+                deleteEdge(e);
+            }
+        }
+        checkRep();
+        return previousWeight;
+    }
+
+    @Override
+    public boolean remove(String vertex) {
+        ensureOpen();
+        checkRep();
+        int id = idOf(vertex);
+        if (id == NIL) {
+            return false;
+        }
+        while (vertexInt(id, OUT_HEAD) != NIL) {
+            deleteEdge(vertexInt(id, OUT_HEAD));
+        }
+        while (vertexInt(id, IN_HEAD) != NIL) {
+            deleteEdge(vertexInt(id, IN_HEAD));
+        }
+        ids.remove(vertex);
+        labels.set(id, null);
+        setVertexInt(id, OUT_HEAD, freeVertex);
+        freeVertex = id;
+        checkRep();
+        return true;
+    }
+
+    @Override
+    public Set<String> vertices() {
+        ensureOpen();
+        checkRep();
+        return new HashSet<>(ids.keySet());
+    }
+
+    @Override
+    public Map<String, Integer> sources(String target) {
+        ensureOpen();
+        checkRep();
+        Map<String, Integer> sources = new HashMap<>();
+        int t = idOf(target);
+        if (t != NIL) {
+            for (int e = vertexInt(t, IN_HEAD); e != NIL; e = edgeInt(e, NEXT_IN)) {
+                sources.put(labels.get(edgeInt(e, SOURCE)), edgeInt(e, WEIGHT));
+            }
+        }
+        return sources;
+    }
+
+    @Override
+    public Map<String, Integer> targets(String source) {
+        ensureOpen();
+        checkRep();
+        Map<String, Integer> targets = new HashMap<>();
+        int s = idOf(source);
+        if (s != NIL) {
+            for (int e = vertexInt(s, OUT_HEAD); e != NIL; e = edgeInt(e, NEXT_OUT)) {
+                targets.put(labels.get(edgeInt(e, TARGET)), edgeInt(e, WEIGHT));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Get the number of edges in this graph.
+     *
+     * @return the number of edges with nonzero weight
+     */
+    public int edgeCount() {
+        ensureOpen();
+        return edgeCount;
+    }
+
+    /**
+     * Release the off-heap storage of this graph. Closing an already closed
+     * graph has no effect.
+     *
+     * <p>Native memory is freed immediately when the graph is stored in
+     * foreign memory segments, and when the garbage collector reclaims the
+     * buffers when it is stored in direct buffers; see OffHeapInts. Either way
+     * the graph cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        vertexTable.free();
+        edgeTable.free();
+        edgeIndex.free();
+        ids.clear();
+        labels.clear();
+    }
+
+    @Override
+    public String toString() {
+        ensureOpen();
+        checkRep();
+        StringBuilder sb = new StringBuilder();
+        sb.append("Vertices: ").append(ids.keySet()).append("\n");
+        sb.append("Edges: ").append(edgeCount).append("\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,218 @@
+package graph;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable array of ints outside the Java heap, indexed by long, stored in
+ * segments of type S. The first segment grows by doubling until it reaches
+ * the segment size; after that whole segments are added, so growing never
+ * copies more than one segment.
+ *
+ * <p>{@link #buffers} stores segments in direct ByteBuffers, whose native
+ * memory is only returned when the garbage collector reclaims them.
+ * {@link #foreign} stores them in memory segments of the incubating foreign
+ * memory API, which are freed as soon as the array is; it lives in the
+ * separate {@code foreign} source folder, which must be compiled and run with
+ * {@code --add-modules jdk.incubator.foreign}, as build.sh does.
+ * {@link #allocate} uses the foreign store when it is available and buffers
+ * otherwise, or buffers if the system property graph.offheap is "buffers".
+ *
+ * @param <S> type of a storage segment
+ */
+abstract class OffHeapInts<S> {
+
+    private static final Constructor<?> FOREIGN = loadForeign();
+    private static final boolean USE_FOREIGN =
+            FOREIGN != null && !"buffers".equals(System.getProperty("graph.offheap"));
+
+    private static Constructor<?> loadForeign() {
+        try {
+            Constructor<?> constructor = Class.forName("graph.SegmentInts").getDeclaredConstructor(int.class, long.class);
+            // the class loads without its module; only using it fails
+            ((OffHeapInts<?>) constructor.newInstance(16, 1)).free();
+            return constructor;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // not compiled, or jdk.incubator.foreign not in the module graph
+        }
+    }
+
+    /**
+     * @param segmentInts ints per segment, a power of two
+     * @param initial initial capacity in ints
+     * @return an array in the store OffHeapGraph uses
+     */
+    static OffHeapInts<?> allocate(int segmentInts, long initial) {
+        return USE_FOREIGN ? foreign(segmentInts, initial) : buffers(segmentInts, initial);
+    }
+
+    /**
+     * @param segmentInts ints per segment, a power of two
+     * @param initial initial capacity in ints
+     * @return an array stored in direct ByteBuffers
+     */
+    static OffHeapInts<?> buffers(int segmentInts, long initial) {
+        return new BufferInts(segmentInts, initial);
+    }
+
+    /**
+     * @param segmentInts ints per segment, a power of two
+     * @param initial initial capacity in ints
+     * @return an array stored in foreign memory segments, or null if they
+     *         were not compiled or jdk.incubator.foreign is not in the module
+     *         graph
+     */
+    static OffHeapInts<?> foreign(int segmentInts, long initial) {
+        if (FOREIGN == null) {
+            return null;
+        }
+        try {
+            return (OffHeapInts<?>) FOREIGN.newInstance(segmentInts, initial);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    final int shift;
+    final int mask;
+    S[] segments;
+    private long capacity = 0;
+
+    // Abstraction function:
+    //   Represents the int array a[0..capacity-1] with a[i] stored at int
+    //   i & mask of segments[i >> shift].
+    // Representation invariant:
+    //   mask + 1 == 1 << shift; every segment but the first holds exactly
+    //   mask + 1 ints, and capacity is the total number of ints in segments;
+    //   after free(), segments is empty and capacity is 0
+    // Safety from rep exposure:
+    //   segments is only accessed by this class and its subclasses, and never
+    //   returned.
+
+    OffHeapInts(int segmentInts, long initial) {
+        this.shift = Integer.numberOfTrailingZeros(segmentInts);
+        this.mask = segmentInts - 1;
+        this.segments = newSegments(0);
+        ensure(Math.max(1, initial));
+    }
+
+    /** @return a[index] */
+    abstract int get(long index);
+
+    /** Set a[index] to value. */
+    abstract void put(long index, int value);
+
+    /** @return a new array of length segments */
+    abstract S[] newSegments(int length);
+
+    /** @return a new segment of ints ints */
+    abstract S newSegment(long ints);
+
+    /** Copy all of from into the start of to, which is at least as long. */
+    abstract void copy(S from, S to);
+
+    /** Release the memory of segment, which is no longer used. */
+    abstract void release(S segment);
+
+    void fill(long from, long to, int value) {
+        for (long i = from; i < to; i++) {
+            put(i, value);
+        }
+    }
+
+    // Make capacity at least ints, keeping the contents.
+    void ensure(long ints) {
+        if (ints <= capacity) {
+            return;
+        }
+        long segmentInts = mask + 1L;
+        if (capacity < segmentInts) {
+            long grown = Math.min(segmentInts, Math.max(ints, 2 * capacity));
+            S segment = newSegment(grown);
+            if (capacity > 0) {
+                copy(segments[0], segment);
+                release(segments[0]);
+                segments[0] = segment;
+            } else {
+                segments = newSegments(1);
+                segments[0] = segment;
+            }
+            capacity = grown;
+        }
+        while (capacity < ints) {
+            long count = segments.length + 1L;
+            if (count > Integer.MAX_VALUE) {
+                throw new IllegalStateException("off-heap storage exceeds " + count + " segments");
+            }
+            segments = Arrays.copyOf(segments, (int) count);
+            segments[(int) count - 1] = newSegment(segmentInts);
+            capacity += segmentInts;
+        }
+    }
+
+    /** Release all storage; the array must not be used afterwards. */
+    void free() {
+        for (S segment : segments) {
+            release(segment);
+        }
+        segments = newSegments(0);
+        capacity = 0;
+    }
+
+    // Segments in direct ByteBuffers, viewed as ints in native byte order.
+    private static final class BufferInts extends OffHeapInts<IntBuffer> {
+
+        BufferInts(int segmentInts, long initial) {
+            super(segmentInts, initial);
+        }
+
+        @Override
+        int get(long index) {
+            return segments[(int) (index >>> shift)].get((int) (index & mask));
+        }
+
+        @Override
+        void put(long index, int value) {
+            segments[(int) (index >>> shift)].put((int) (index & mask), value);
+        }
+
+        @Override
+        IntBuffer[] newSegments(int length) {
+            return new IntBuffer[length];
+        }
+
+        @Override
+        IntBuffer newSegment(long ints) {
+            return ByteBuffer.allocateDirect(Math.toIntExact(ints * Integer.BYTES))
+                    .order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+
+        @Override
+        void copy(IntBuffer from, IntBuffer to) {
+            to.duplicate().put(from.duplicate().clear());
+        }
+
+        @Override
+        void release(IntBuffer segment) {
+            // freed when the garbage collector reclaims the buffer
+        }
+
+        @Override
+        public String toString() {
+            return "buffers";
+        }
+    }
+}
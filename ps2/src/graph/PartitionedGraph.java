@@ -0,0 +1,178 @@
+package graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * An implementation of Graph whose vertices are hash-partitioned across
+ * shards reached through a ShardTransport.
+ * 
+ * <p>Each vertex is owned by shard {@link #shardOf(String, int)}, which also
+ * stores all of its outgoing edges. add, set and targets go to the owning
+ * shard only; sources, vertices and remove fan out to every shard. The batch
+ * queries of {@link BatchGraph} send at most one request to each shard.
+ * 
+ * <p>Graph operations report transport failures as UncheckedIOException,
+ * and rethrow RuntimeExceptions thrown by the shards.
+ */
+public class PartitionedGraph implements BatchGraph<String> {
+    
+    private final ShardTransport transport;
+    
+    // Abstraction function:
+    //   Represents the graph whose vertices are the union of the VERTICES
+    //   responses of all shards of transport, and whose edges are the union of
+    //   the edges stored in all shards.
+    // Representation invariant:
+    //   transport.shardCount() > 0
+    //   (maintained by the shards) every vertex v is stored on shard
+    //   shardOf(v), and every edge s -> t is stored on shard shardOf(s) only;
+    //   set() adds t to shardOf(t) just after creating such an edge, so an
+    //   operation failing in between can leave t missing from vertices()
+    // Safety from rep exposure:
+    //   transport is private and final and never returned; all observers
+    //   return new collections.
+    
+    /**
+     * Create a partitioned graph over the given shards. The graph initially
+     * contains whatever the shards already store.
+     * 
+     * @param transport transport to the shards; the caller remains
+     *        responsible for closing it
+     */
+    public PartitionedGraph(ShardTransport transport) {
+        this.transport = transport;
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert transport.shardCount() > 0 : "No shards";
+    }
+    
+    /**
+     * Get the shard that owns a vertex.
+     * 
+     * @param vertex label of the vertex
+     * @param shardCount number of shards, positive
+     * @return the index of the owning shard, in [0, shardCount)
+     */
+    public static int shardOf(String vertex, int shardCount) {
+        return Math.floorMod(vertex.hashCode(), shardCount);
+    }
+    
+    private int owner(String vertex) {
+        return shardOf(vertex, transport.shardCount());
+    }
+    
+    private List<Object> call(int shard, List<ShardOp> ops) {
+        try {
+            return transport.call(shard, ops);
+        } catch (IOException e) {
+            throw new UncheckedIOException("shard " + shard + " failed", e);
+        }
+    }
+    
+    private Object call(int shard, ShardOp op) {
+        return call(shard, Collections.singletonList(op)).get(0);
+    }
+    
+    @Override
+    public boolean add(String vertex) {
+        return (Boolean) call(owner(vertex), ShardOp.add(vertex));
+    }
+    
+    @Override
+    public int set(String source, String target, int weight) {
+        int previousWeight = (Integer) call(owner(source), ShardOp.set(source, target, weight));
+        // an existing edge means its target is already stored by its owner
+        if (weight != 0 && previousWeight == 0 && owner(target) != owner(source)) {
+            call(owner(target), ShardOp.add(target));
+        }
+        return previousWeight;
+    }
+    
+    @Override
+    public boolean remove(String vertex) {
+        int owner = owner(vertex);
+        if (!(Boolean) call(owner, ShardOp.remove(vertex))) {
+            return false;
+        }
+        // drop the placeholder copies, and with them the edges into vertex
+        for (int shard = 0; shard < transport.shardCount(); shard++) {
+            if (shard != owner) {
+                call(shard, ShardOp.remove(vertex));
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> vertices() {
+        Set<String> vertices = new HashSet<>();
+        for (int shard = 0; shard < transport.shardCount(); shard++) {
+            vertices.addAll((Set<String>) call(shard, ShardOp.vertices()));
+        }
+        return vertices;
+    }
+    
+    @Override
+    public Map<String, Integer> sources(String target) {
+        return sources(Collections.singleton(target)).get(target);
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Integer> targets(String source) {
+        return (Map<String, Integer>) call(owner(source), ShardOp.targets(source));
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Integer>> sources(Collection<String> targets) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(targets));
+        List<ShardOp> ops = new ArrayList<>(distinct.size());
+        Map<String, Map<String, Integer>> sources = new HashMap<>();
+        for (String target : distinct) {
+            ops.add(ShardOp.sources(target));
+            sources.put(target, new HashMap<>());
+        }
+        if (ops.isEmpty()) {
+            return sources;
+        }
+        for (int shard = 0; shard < transport.shardCount(); shard++) {
+            List<Object> responses = call(shard, ops);
+            for (int i = 0; i < distinct.size(); i++) {
+                sources.get(distinct.get(i)).putAll((Map<String, Integer>) responses.get(i));
+            }
+        }
+        return sources;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Integer>> targets(Collection<String> sources) {
+        Map<Integer, List<String>> byShard = new HashMap<>();
+        for (String source : new LinkedHashSet<>(sources)) {
+            byShard.computeIfAbsent(owner(source), shard -> new ArrayList<>()).add(source);
+        }
+        Map<String, Map<String, Integer>> targets = new HashMap<>();
+        for (Map.Entry<Integer, List<String>> entry : byShard.entrySet()) {
+            List<ShardOp> ops = new ArrayList<>();
+            for (String source : entry.getValue()) {
+                ops.add(ShardOp.targets(source));
+            }
+            List<Object> responses = call(entry.getKey(), ops);
+            for (int i = 0; i < ops.size(); i++) {
+                targets.put(entry.getValue().get(i), (Map<String, Integer>) responses.get(i));
+            }
+        }
+        return targets;
+    }
+    
+    @Override
+    public String toString() {
+        return "PartitionedGraph(" + transport.shardCount() + " shards)";
+    }
+}
@@ -0,0 +1,98 @@
+package graph;
+
+import java.io.Serializable;
+
+/**
+ * An immutable request to one shard of a PartitionedGraph: a single Graph
+ * operation on the shard's local graph.
+ */
+public class ShardOp implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /** The Graph operation requested. */
+    public enum Kind { ADD, SET, REMOVE, VERTICES, SOURCES, TARGETS }
+    
+    private final Kind kind;
+    private final String source;
+    private final String target;
+    private final int weight;
+    
+    // Abstraction function:
+    //   Represents the operation kind applied to the arguments that kind uses:
+    //   ADD, REMOVE, TARGETS use source as their vertex; SOURCES uses target;
+    //   SET uses source, target and weight; VERTICES uses none.
+    // Representation invariant:
+    //   the labels used by kind are not null
+    // Safety from rep exposure:
+    //   Fields are private, final, and of immutable types.
+    
+    private ShardOp(Kind kind, String source, String target, int weight) {
+        this.kind = kind;
+        this.source = source;
+        this.target = target;
+        this.weight = weight;
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert kind != null : "Kind is null";
+        assert kind == Kind.VERTICES || kind == Kind.SOURCES || source != null : "Source is null";
+        assert (kind != Kind.SET && kind != Kind.SOURCES) || target != null : "Target is null";
+    }
+    
+    /** @return request for add(vertex) */
+    public static ShardOp add(String vertex) {
+        return new ShardOp(Kind.ADD, vertex, null, 0);
+    }
+    
+    /** @return request for set(source, target, weight) */
+    public static ShardOp set(String source, String target, int weight) {
+        return new ShardOp(Kind.SET, source, target, weight);
+    }
+    
+    /** @return request for remove(vertex) */
+    public static ShardOp remove(String vertex) {
+        return new ShardOp(Kind.REMOVE, vertex, null, 0);
+    }
+    
+    /** @return request for the vertices owned by the shard */
+    public static ShardOp vertices() {
+        return new ShardOp(Kind.VERTICES, null, null, 0);
+    }
+    
+    /** @return request for sources(target) */
+    public static ShardOp sources(String target) {
+        return new ShardOp(Kind.SOURCES, null, target, 0);
+    }
+    
+    /** @return request for targets(source) */
+    public static ShardOp targets(String source) {
+        return new ShardOp(Kind.TARGETS, source, null, 0);
+    }
+    
+    /** @return the operation requested */
+    public Kind getKind() {
+        return kind;
+    }
+    
+    /** @return the source or single vertex argument, or null if unused */
+    public String getSource() {
+        return source;
+    }
+    
+    /** @return the target argument, or null if unused */
+    public String getTarget() {
+        return target;
+    }
+    
+    /** @return the weight argument, or 0 if unused */
+    public int getWeight() {
+        return weight;
+    }
+    
+    @Override
+    public String toString() {
+        return kind + "(" + source + ", " + target + ", " + weight + ")";
+    }
+}
@@ -0,0 +1,223 @@
+package graph;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One shard of a PartitionedGraph: a local graph holding the vertices the
+ * shard owns, their outgoing edges, and placeholder copies of the targets of
+ * those edges.
+ * 
+ * <p>A shard server can be used in-process through {@link #apply(List)}, or
+ * served over sockets with {@link #serve(ServerSocket)}; {@link #main(String[])}
+ * runs one shard as a standalone JVM process.
+ * 
+ * <p>Requests are deserialized through an allow-list filter that admits only
+ * batches of ShardOp, so a connection cannot make the server instantiate
+ * arbitrary classes. The protocol is not authenticated, though: shard
+ * servers must only listen on the loopback interface or a trusted network.
+ * 
+ * <p>A RuntimeException thrown while applying a request is sent back as the
+ * response and the connection stays open. A request that cannot be read is
+ * answered with an IOException describing it, and the connection is then
+ * dropped, since the stream cannot be resynchronized; such connections are
+ * logged.
+ */
+public class ShardServer implements AutoCloseable {
+    
+    /** Classes a request may contain; anything else is rejected. */
+    static final ObjectInputFilter REQUEST_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=4;maxarray=" + (1 << 20) + ";maxrefs=" + (1 << 22)
+            + ";java.util.ArrayList;java.lang.Object;graph.ShardOp;graph.ShardOp$Kind;java.lang.Enum"
+            + ";java.lang.String;!*");
+    
+    private static final Logger LOG = Logger.getLogger(ShardServer.class.getName());
+    
+    private final int shard;
+    private final int shardCount;
+    private final Graph<String> local;
+    private boolean closed = false;
+    
+    // Abstraction function:
+    //   Represents shard number `shard` of shardCount, whose part of the
+    //   partitioned graph is the vertices v of local with
+    //   PartitionedGraph.shardOf(v, shardCount) == shard, together with all
+    //   edges of local.
+    // Representation invariant:
+    //   0 <= shard < shardCount
+    //   every edge of local has a source owned by this shard
+    //   once closed, local is never used again
+    // Safety from rep exposure:
+    //   local is private and final and never returned; every response is a
+    //   fresh value or collection.
+    
+    /**
+     * Create a shard server.
+     * 
+     * @param shard index of this shard, 0 <= shard < shardCount
+     * @param shardCount total number of shards in the partitioned graph
+     * @param local empty graph to hold this shard's data; the server takes
+     *        ownership of it
+     */
+    public ShardServer(int shard, int shardCount, Graph<String> local) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("shard " + shard + " out of range for " + shardCount + " shards");
+        }
+        this.shard = shard;
+        this.shardCount = shardCount;
+        this.local = local;
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert 0 <= shard && shard < shardCount : "Shard index out of range";
+    }
+    
+    /**
+     * Apply a batch of operations to this shard, in order.
+     * 
+     * @param ops operations to apply
+     * @return one response per operation, in order: a Boolean for ADD and
+     *         REMOVE, an Integer for SET, a Set of owned labels for VERTICES,
+     *         and a Map from label to weight for SOURCES and TARGETS
+     * @throws IllegalStateException if this server has been closed
+     */
+    public synchronized List<Object> apply(List<ShardOp> ops) {
+        if (closed) {
+            throw new IllegalStateException("shard " + shard + " has been closed");
+        }
+        List<Object> responses = new ArrayList<>(ops.size());
+        for (ShardOp op : ops) {
+            responses.add(apply(op));
+        }
+        checkRep();
+        return responses;
+    }
+    
+    private Object apply(ShardOp op) {
+        switch (op.getKind()) {
+        case ADD:
+            return local.add(op.getSource());
+        case SET:
+            return local.set(op.getSource(), op.getTarget(), op.getWeight());
+        case REMOVE:
+            return local.remove(op.getSource());
+        case VERTICES:
+            Set<String> owned = new HashSet<>();
+            for (String vertex : local.vertices()) {
+                if (PartitionedGraph.shardOf(vertex, shardCount) == shard) {
+                    owned.add(vertex);
+                }
+            }
+            return owned;
+        case SOURCES:
+            return new HashMap<>(local.sources(op.getTarget()));
+        case TARGETS:
+            return new HashMap<>(local.targets(op.getSource()));
+        default:
+            throw new AssertionError("unknown operation " + op);
+        }
+    }
+    
+    /**
+     * Serve requests from clients until the server socket is closed. Each
+     * connection is handled on its own daemon thread; a client sends a
+     * serialized List of ShardOp per request and receives the List of
+     * responses from {@link #apply(List)}, or the RuntimeException it threw,
+     * or an IOException if the request could not be read.
+     * 
+     * @param server socket to accept connections on
+     */
+    public void serve(ServerSocket server) {
+        while (!server.isClosed()) {
+            final Socket client;
+            try {
+                client = server.accept();
+            } catch (IOException e) {
+                return; // server socket closed
+            }
+            Thread handler = new Thread(() -> handle(client), "shard-" + shard + "-" + client.getPort());
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void handle(Socket client) {
+        try (Socket socket = client;
+                ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            in.setObjectInputFilter(REQUEST_FILTER);
+            while (true) {
+                List<ShardOp> ops;
+                try {
+                    ops = (List<ShardOp>) in.readObject();
+                } catch (EOFException e) {
+                    return; // client disconnected
+                } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                    // rejected classes or a malformed request
+                    LOG.log(Level.WARNING, "shard " + shard + ": dropping connection after unreadable request", e);
+                    out.writeObject(new IOException("shard " + shard + " cannot read request: " + e));
+                    out.flush();
+                    return;
+                }
+                Object response;
+                try {
+                    response = apply(ops);
+                } catch (RuntimeException e) {
+                    response = e; // includes a closed shard
+                }
+                out.writeObject(response);
+                out.reset();
+                out.flush();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "shard " + shard + ": connection failed", e);
+        }
+    }
+    
+    /**
+     * Stop applying requests and close the local graph if it is
+     * AutoCloseable. Waits for a batch being applied to finish. Closing an
+     * already closed server has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (local instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) local).close();
+            } catch (Exception e) {
+                throw new IllegalStateException("cannot close shard storage", e);
+            }
+        }
+    }
+    
+    /**
+     * Run one shard as a standalone process, listening on the loopback
+     * interface.
+     * 
+     * @param args shard index, shard count, and port to listen on
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: ShardServer <shard> <shardCount> <port>");
+            System.exit(2);
+        }
+        try (ShardServer server = new ShardServer(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                new OffHeapGraph());
+                ServerSocket socket = new ServerSocket(Integer.parseInt(args[2]), 50, InetAddress.getLoopbackAddress())) {
+            server.serve(socket);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Carries batches of operations from a PartitionedGraph to its shards.
+ */
+public interface ShardTransport extends Closeable {
+    
+    /**
+     * @return the number of shards reachable through this transport, positive
+     */
+    public int shardCount();
+    
+    /**
+     * Send a batch of operations to one shard in a single round trip.
+     * 
+     * @param shard index of the shard, 0 <= shard < shardCount()
+     * @param ops operations to apply on that shard, in order
+     * @return the shard's responses, as specified by
+     *         {@link ShardServer#apply(List)}
+     * @throws IOException if the shard cannot be reached
+     * @throws RuntimeException if the shard throws it while applying an
+     *         operation; the operations before that one have been applied, and
+     *         the shard can still be called
+     */
+    public List<Object> call(int shard, List<ShardOp> ops) throws IOException;
+    
+}
@@ -0,0 +1,185 @@
+package graph;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A ShardTransport that reaches each shard over a TCP connection to a
+ * ShardServer, which may run in another JVM process. Each request batch is
+ * one serialized round trip.
+ * 
+ * <p>Calls to different shards may proceed concurrently; calls to the same
+ * shard are serialized on that shard's connection.
+ */
+public class SocketTransport implements ShardTransport {
+    
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<ObjectOutputStream> outs = new ArrayList<>();
+    private final List<ObjectInputStream> ins = new ArrayList<>();
+    private final List<Object> locks = new ArrayList<>();
+    private final List<ServerSocket> servers = new ArrayList<>();
+    private final List<ShardServer> shardServers = new ArrayList<>();
+    
+    // Abstraction function:
+    //   Represents a transport to shard i through sockets[i], writing requests
+    //   to outs[i] and reading responses from ins[i] while holding locks[i];
+    //   servers are the listening sockets, and shardServers the shards, started
+    //   by loopback(), if any.
+    // Representation invariant:
+    //   sockets, outs, ins, and locks are non-empty and have the same size
+    // Safety from rep exposure:
+    //   Fields are private and final and never returned.
+    // Thread safety argument:
+    //   The lists are only mutated by the constructor. outs[i] and ins[i] are
+    //   only used while holding locks[i], so one request/response exchange
+    //   on a connection never interleaves with another.
+    
+    /**
+     * Connect to running shard servers.
+     * 
+     * @param shards addresses of the shard servers, in shard index order
+     * @throws IOException if a shard cannot be reached
+     */
+    public SocketTransport(List<InetSocketAddress> shards) throws IOException {
+        this(shards, new ArrayList<>(), new ArrayList<>());
+    }
+    
+    private SocketTransport(List<InetSocketAddress> shards, List<ServerSocket> servers,
+            List<ShardServer> shardServers) throws IOException {
+        this.servers.addAll(servers);
+        this.shardServers.addAll(shardServers);
+        if (shards.isEmpty()) {
+            close();
+            throw new IllegalArgumentException("no shards");
+        }
+        try {
+            for (InetSocketAddress address : shards) {
+                Socket socket = new Socket(address.getAddress(), address.getPort());
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.flush();
+                outs.add(out);
+                ins.add(new ObjectInputStream(new BufferedInputStream(socket.getInputStream())));
+                locks.add(new Object());
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert !sockets.isEmpty() : "No shards";
+        assert sockets.size() == outs.size() && outs.size() == ins.size() : "Connections out of step";
+        assert ins.size() == locks.size() : "Locks out of step";
+    }
+    
+    /**
+     * Start shard servers in this JVM, each listening on its own loopback
+     * port, and connect to them. Closing the transport also stops the
+     * servers and closes their storage.
+     * 
+     * @param shardCount number of shards, positive
+     * @param localGraphs produces a new empty graph for each shard's storage;
+     *        graphs that are AutoCloseable are closed by {@link #close()}
+     * @return a transport connected to the new shards
+     * @throws IOException if the servers cannot be started or reached; any
+     *         servers and storage already started are closed
+     */
+    public static SocketTransport loopback(int shardCount, Supplier<? extends Graph<String>> localGraphs)
+            throws IOException {
+        List<ServerSocket> servers = new ArrayList<>();
+        List<ShardServer> shardServers = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                ShardServer server = new ShardServer(i, shardCount, localGraphs.get());
+                shardServers.add(server);
+                ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+                servers.add(socket);
+                addresses.add(new InetSocketAddress(socket.getInetAddress(), socket.getLocalPort()));
+                Thread acceptor = new Thread(() -> server.serve(socket), "shard-" + i);
+                acceptor.setDaemon(true);
+                acceptor.start();
+            }
+        } catch (IOException | RuntimeException e) {
+            closeAll(servers, shardServers, e);
+            throw e;
+        }
+        return new SocketTransport(addresses, servers, shardServers);
+    }
+    
+    /*
+     * Close server sockets, then shard servers, adding any failure to
+     * failure as suppressed.
+     */
+    private static void closeAll(List<? extends Closeable> closeables, List<ShardServer> shardServers,
+            Exception failure) {
+        for (Closeable closeable : closeables) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        for (ShardServer server : shardServers) {
+            try {
+                server.close();
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+    
+    @Override
+    public int shardCount() {
+        return sockets.size();
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object> call(int shard, List<ShardOp> ops) throws IOException {
+        synchronized (locks.get(shard)) {
+            ObjectOutputStream out = outs.get(shard);
+            out.writeObject(new ArrayList<>(ops));
+            out.reset();
+            out.flush();
+            Object response;
+            try {
+                response = ins.get(shard).readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("unexpected response from shard " + shard, e);
+            }
+            if (response instanceof RuntimeException) {
+                throw (RuntimeException) response;
+            } else if (response instanceof IOException) {
+                throw new IOException("shard " + shard + " dropped the connection", (IOException) response);
+            }
+            return (List<Object>) response;
+        }
+    }
+    
+    /**
+     * Close the connections to the shards, and stop the servers and close the
+     * storage of any shards started by {@link #loopback(int, Supplier)}. Calls
+     * in progress fail with IOException.
+     */
+    @Override
+    public void close() throws IOException {
+        List<Closeable> closeables = new ArrayList<>(sockets);
+        closeables.addAll(servers);
+        IOException failure = new IOException("cannot close shard transport");
+        closeAll(closeables, shardServers, failure);
+        if (failure.getSuppressed().length > 0) {
+            throw failure;
+        }
+    }
+}
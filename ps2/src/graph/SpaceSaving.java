@@ -0,0 +1,256 @@
+package graph;
+
+import java.util.*;
+
+/**
+ * The Space-Saving heavy-hitter summary: tracks at most `capacity` keys, and
+ * guarantees that every key whose total count exceeds N/capacity is tracked,
+ * where N is the sum of all increments. A tracked key's counter overestimates
+ * its count by at most the error recorded when it was admitted.
+ *
+ * <p>Keys whose exact count is known can be recorded with
+ * {@link #put(Object, long)} instead: the summary then holds the capacity
+ * largest counts put, exactly. Decrements, and puts that lower a count, are
+ * applied to tracked keys only, so afterwards the summary is a best-effort
+ * approximation.
+ *
+ * <p>Counters are kept in a binary min-heap, so every update costs
+ * O(log capacity).
+ *
+ * @param <T> type of keys, must be immutable
+ */
+class SpaceSaving<T> {
+
+    private final int capacity;
+    private final List<T> keys = new ArrayList<>();
+    private final long[] counts;
+    private final long[] errors;
+    private final long[] touched;
+    private final Map<T, Integer> positions = new HashMap<>();
+    private long clock = 0;
+
+    // Abstraction function:
+    //   Represents the tracked keys keys[i], for 0 <= i < keys.size(), with
+    //   estimated count counts[i] and maximum overestimate errors[i], last
+    //   updated at time touched[i] of a clock that ticks on every update.
+    // Representation invariant:
+    //   capacity > 0, keys.size() <= capacity,
+    //   counts, errors and touched all have length capacity,
+    //   positions maps each keys[i] to i and has no other keys,
+    //   counts[i] > 0, 0 <= errors[i] and touched[i] < clock for every i < keys.size(),
+    //   keys is a heap in eviction order (see before()): counter (i - 1) / 2
+    //   is not after counter i for 0 < i < keys.size()
+    // Safety from rep exposure:
+    //   Fields are private and final; observers return new collections.
+
+    /**
+     * Create an empty summary.
+     *
+     * @param capacity maximum number of tracked keys, positive
+     */
+    SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.touched = new long[capacity];
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert keys.size() <= capacity : "Too many counters";
+        assert positions.size() == keys.size() : "Positions out of step";
+    }
+
+    /**
+     * Add delta to the count of key. A positive delta for an untracked key
+     * evicts the key with the smallest counter if the summary is full.
+     *
+     * @param key key to update
+     * @param delta amount to add, may be negative
+     */
+    void add(T key, long delta) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            update(position, counts[position] + delta, errors[position]);
+        } else if (delta > 0) {
+            if (keys.size() < capacity) {
+                insert(key, delta, 0);
+            } else {
+                long min = counts[0];
+                replaceMin(key, min + delta, min);
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * Record the exact count of key. An untracked key is admitted, evicting
+     * the key with the smallest counter if the summary is full, only if its
+     * count exceeds that smallest counter.
+     *
+     * @param key key to update
+     * @param count current count of key; 0 or less forgets key
+     */
+    void put(T key, long count) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            update(position, count, 0);
+        } else if (count > 0) {
+            if (keys.size() < capacity) {
+                insert(key, count, 0);
+            } else if (count > counts[0]) {
+                replaceMin(key, count, 0);
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * Forget a key entirely.
+     *
+     * @param key key to forget
+     */
+    void remove(T key) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            removeAt(position);
+        }
+        checkRep();
+    }
+
+    /**
+     * @param k maximum number of keys to return, nonnegative
+     * @return up to k tracked keys with the largest estimated counts, mapped
+     *         to those estimates, in decreasing order of estimate; equal
+     *         estimates in decreasing order of guaranteed count
+     */
+    LinkedHashMap<T, Long> top(int k) {
+        List<Integer> order = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> before(a, b) ? 1 : before(b, a) ? -1 : 0);
+        LinkedHashMap<T, Long> top = new LinkedHashMap<>();
+        for (int i : order.subList(0, Math.min(k, order.size()))) {
+            top.put(keys.get(i), counts[i]);
+        }
+        return top;
+    }
+
+    private void insert(T key, long count, long error) {
+        int position = keys.size();
+        keys.add(key);
+        counts[position] = count;
+        errors[position] = error;
+        touched[position] = clock++;
+        positions.put(key, position);
+        siftUp(position);
+    }
+
+    private void replaceMin(T key, long count, long error) {
+        positions.remove(keys.get(0));
+        keys.set(0, key);
+        counts[0] = count;
+        errors[0] = error;
+        touched[0] = clock++;
+        positions.put(key, 0);
+        siftDown(0);
+    }
+
+    private void update(int position, long count, long error) {
+        if (count <= 0) {
+            removeAt(position);
+            return;
+        }
+        counts[position] = count;
+        errors[position] = error;
+        touched[position] = clock++;
+        siftUp(position);
+        siftDown(position);
+    }
+
+    private void removeAt(int position) {
+        int last = keys.size() - 1;
+        positions.remove(keys.get(position));
+        if (position != last) {
+            move(last, position);
+        }
+        keys.remove(last);
+        if (position != last) {
+            siftUp(position);
+            siftDown(position);
+        }
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!before(position, parent)) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        int size = keys.size();
+        while (true) {
+            int least = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (before(child, least)) {
+                    least = child;
+                }
+            }
+            if (least == position) {
+                return;
+            }
+            swap(least, position);
+            position = least;
+        }
+    }
+
+    // Eviction order: smaller counter first; among equal counters the one
+    // with the larger error, i.e. the smaller guaranteed count; then the one
+    // updated least recently.
+    private boolean before(int a, int b) {
+        if (counts[a] != counts[b]) {
+            return counts[a] < counts[b];
+        }
+        if (errors[a] != errors[b]) {
+            return errors[a] > errors[b];
+        }
+        return touched[a] < touched[b];
+    }
+    
+    private void swap(int a, int b) {
+        T key = keys.get(a);
+        long count = counts[a];
+        long error = errors[a];
+        long time = touched[a];
+        move(b, a);
+        keys.set(b, key);
+        counts[b] = count;
+        errors[b] = error;
+        touched[b] = time;
+        positions.put(key, b);
+    }
+
+    // Copy the counter at position from into position to.
+    private void move(int from, int to) {
+        T key = keys.get(from);
+        keys.set(to, key);
+        counts[to] = counts[from];
+        errors[to] = errors[from];
+        touched[to] = touched[from];
+        positions.put(key, to);
+    }
+
+    @Override
+    public String toString() {
+        return "SpaceSaving" + top(capacity);
+    }
+}
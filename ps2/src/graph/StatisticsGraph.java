@@ -0,0 +1,137 @@
+package graph;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Graph that wraps another graph and keeps GraphStatistics about it up to
+ * date on every mutation, so that callers can specialize their work for
+ * high-degree hub vertices.
+ * 
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class StatisticsGraph<L> implements Graph<L> {
+    
+    /** Default number of heaviest vertices and edges tracked. */
+    public static final int DEFAULT_HEAVY_CAPACITY = 64;
+    
+    private final Graph<L> graph;
+    private final GraphStatistics<L> statistics;
+    
+    // Abstraction function:
+    //   Represents the graph `graph`.
+    // Representation invariant:
+    //   statistics describes graph: same vertices, and in/out degrees and
+    //   edge count matching graph's edges
+    // Safety from rep exposure:
+    //   graph is private and final and never returned; statistics is returned
+    //   but cannot be mutated outside this package.
+    
+    /**
+     * Create a statistics-keeping graph.
+     * 
+     * @param graph empty graph to store vertices and edges in; this graph
+     *        takes ownership of it
+     * @throws IllegalArgumentException if graph is not empty
+     */
+    public StatisticsGraph(Graph<L> graph) {
+        this(graph, DEFAULT_HEAVY_CAPACITY);
+    }
+    
+    /**
+     * Create a statistics-keeping graph.
+     * 
+     * @param graph empty graph to store vertices and edges in; this graph
+     *        takes ownership of it
+     * @param heavyCapacity number of heaviest vertices and edges to track,
+     *        positive
+     * @throws IllegalArgumentException if graph is not empty
+     */
+    public StatisticsGraph(Graph<L> graph, int heavyCapacity) {
+        if (!graph.vertices().isEmpty()) {
+            throw new IllegalArgumentException("graph must be empty");
+        }
+        this.graph = graph;
+        this.statistics = new GraphStatistics<>(heavyCapacity);
+        checkRep();
+    }
+    
+    // checkRep runs on every mutation, so it checks only what is O(1); the
+    // tests compare statistics against graph in full.
+    private void checkRep() {
+        long vertices = statistics.vertexCount();
+        assert 0 <= statistics.edgeCount() && statistics.edgeCount() <= vertices * vertices
+                : "Statistics edge count impossible";
+    }
+    
+    /**
+     * @return a read-only live view of the statistics of this graph
+     */
+    public GraphStatistics<L> statistics() {
+        return statistics;
+    }
+    
+    @Override
+    public boolean add(L vertex) {
+        boolean added = graph.add(vertex);
+        if (added) {
+            statistics.vertexAdded(vertex);
+        }
+        checkRep();
+        return added;
+    }
+    
+    @Override
+    public int set(L source, L target, int weight) {
+        int previousWeight = graph.set(source, target, weight);
+        if (weight != 0) {
+            statistics.vertexAdded(source);
+            statistics.vertexAdded(target);
+        }
+        if (previousWeight != 0 || weight != 0) {
+            statistics.edgeChanged(source, target, previousWeight, weight);
+        }
+        checkRep();
+        return previousWeight;
+    }
+    
+    @Override
+    public boolean remove(L vertex) {
+        Map<L, Integer> targets = graph.targets(vertex);
+        Map<L, Integer> sources = graph.sources(vertex);
+        boolean removed = graph.remove(vertex);
+        if (removed) {
+            for (Map.Entry<L, Integer> edge : targets.entrySet()) {
+                statistics.edgeChanged(vertex, edge.getKey(), edge.getValue(), 0);
+            }
+            for (Map.Entry<L, Integer> edge : sources.entrySet()) {
+                if (!edge.getKey().equals(vertex)) {
+                    statistics.edgeChanged(edge.getKey(), vertex, edge.getValue(), 0);
+                }
+            }
+            statistics.vertexRemoved(vertex);
+        }
+        checkRep();
+        return removed;
+    }
+    
+    @Override
+    public Set<L> vertices() {
+        return graph.vertices();
+    }
+    
+    @Override
+    public Map<L, Integer> sources(L target) {
+        return graph.sources(target);
+    }
+    
+    @Override
+    public Map<L, Integer> targets(L source) {
+        return graph.targets(source);
+    }
+    
+    @Override
+    public String toString() {
+        return graph.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package graph;
+
+/**
+ * The inner loops of the WeightMatrix bulk operations, over ranges of an int
+ * weight array.
+ *
+ * <p>{@link #scalar()} is plain counted loops, left to the JIT to vectorize
+ * if it can. {@link #vector()} uses the incubating Vector API, which
+ * compiles to SIMD instructions explicitly; it lives in the separate
+ * {@code vector} source folder, which must be compiled and run with
+ * {@code --add-modules jdk.incubator.vector}, as build.sh does.
+ * {@link #best()} is the vector kernels when they are available and the
+ * scalar ones otherwise, or the scalar ones if the system property
+ * graph.kernels is "scalar".
+ *
+ * <p>All kernels return identical results: sums are exact, and scaling
+ * multiplies each weight, converted exactly to double, by the same factor.
+ */
+abstract class WeightKernels {
+
+    private static final WeightKernels SCALAR = new Scalar();
+    private static final WeightKernels VECTOR = loadVector();
+    private static final WeightKernels BEST =
+            VECTOR != null && !"scalar".equals(System.getProperty("graph.kernels")) ? VECTOR : SCALAR;
+
+    private static WeightKernels loadVector() {
+        try {
+            return (WeightKernels) Class.forName("graph.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // not compiled, or jdk.incubator.vector not in the module graph
+        }
+    }
+
+    /** @return the plain loop kernels */
+    static WeightKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * @return the Vector API kernels, or null if they were not compiled or
+     *         jdk.incubator.vector is not in the module graph
+     */
+    static WeightKernels vector() {
+        return VECTOR;
+    }
+
+    /** @return the kernels the bulk operations of WeightMatrix use */
+    static WeightKernels best() {
+        return BEST;
+    }
+
+    /**
+     * @param weights array to sum
+     * @param from first index, inclusive
+     * @param to last index, exclusive; from <= to <= weights.length
+     * @return the sum of weights[from..to)
+     */
+    abstract long sum(int[] weights, int from, int to);
+
+    /**
+     * Store weights[i] * factor into scaled[i] for every i in [from, to).
+     *
+     * @param weights array to scale
+     * @param from first index, inclusive
+     * @param to last index, exclusive; from <= to <= weights.length
+     * @param factor scale factor
+     * @param scaled array to store into, at least as long as weights
+     */
+    abstract void scale(int[] weights, int from, int to, double factor, double[] scaled);
+
+    // The plain loop kernels.
+    private static class Scalar extends WeightKernels {
+
+        @Override
+        long sum(int[] weights, int from, int to) {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += weights[i];
+            }
+            return sum;
+        }
+
+        @Override
+        void scale(int[] weights, int from, int to, double factor, double[] scaled) {
+            for (int i = from; i < to; i++) {
+                scaled[i] = weights[i] * factor;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package graph;
+
+import java.util.*;
+
+/**
+ * An immutable array-backed snapshot of the weights of a Graph&lt;String&gt;,
+ * in compressed sparse row form, with bulk operations over all rows.
+ *
+ * <p>Vertices are numbered 0..size()-1 in label order. Row i holds the
+ * outgoing edges of vertex i, sorted by target index, in the index range
+ * [rowStart(i), rowStart(i + 1)) of the per-edge arrays. Bulk operations
+ * return per-edge or per-row arrays instead of maps. Their inner loops run
+ * on {@link WeightKernels#best()}: Vector API kernels when the JVM has the
+ * jdk.incubator.vector module, plain loops otherwise.
+ */
+public class WeightMatrix {
+
+    private final String[] labels;
+    private final int[] rowStart;
+    private final int[] columns;
+    private final int[] weights;
+
+    // Abstraction function:
+    //   Represents the graph with vertices labels[0..n-1] and, for each row i
+    //   and each e in [rowStart[i], rowStart[i+1]), an edge
+    //   labels[i] -> labels[columns[e]] of weight weights[e].
+    // Representation invariant:
+    //   labels is sorted and has no duplicates; rowStart.length == n + 1,
+    //   rowStart[0] == 0, rowStart is nondecreasing, rowStart[n] ==
+    //   columns.length == weights.length; within each row columns are strictly
+    //   increasing and in [0, n); all weights are positive
+    // Safety from rep exposure:
+    //   All fields are private and final, arrays are never returned, and
+    //   observers return new arrays or collections.
+
+    private WeightMatrix(String[] labels, int[] rowStart, int[] columns, int[] weights) {
+        this.labels = labels;
+        this.rowStart = rowStart;
+        this.columns = columns;
+        this.weights = weights;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert rowStart.length == labels.length + 1 : "Row index has wrong length";
+        assert rowStart[0] == 0 && rowStart[labels.length] == columns.length : "Row index out of range";
+        assert columns.length == weights.length : "Edge arrays out of step";
+    }
+
+    /**
+     * Take a snapshot of a graph.
+     *
+     * @param graph graph to copy
+     * @return a matrix with the vertices and edges of graph
+     */
+    public static WeightMatrix of(Graph<String> graph) {
+        String[] labels = graph.vertices().toArray(new String[0]);
+        Arrays.sort(labels);
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            index.put(labels[i], i);
+        }
+        int[] rowStart = new int[labels.length + 1];
+        int[][] rowColumns = new int[labels.length][];
+        int[][] rowWeights = new int[labels.length][];
+        for (int i = 0; i < labels.length; i++) {
+            Map<String, Integer> targets = graph.targets(labels[i]);
+            int[] cols = new int[targets.size()];
+            int n = 0;
+            for (String target : targets.keySet()) {
+                cols[n++] = index.get(target);
+            }
+            Arrays.sort(cols);
+            int[] ws = new int[cols.length];
+            for (int j = 0; j < cols.length; j++) {
+                ws[j] = targets.get(labels[cols[j]]);
+            }
+            rowColumns[i] = cols;
+            rowWeights[i] = ws;
+            rowStart[i + 1] = rowStart[i] + cols.length;
+        }
+        int[] columns = new int[rowStart[labels.length]];
+        int[] weights = new int[columns.length];
+        for (int i = 0; i < labels.length; i++) {
+            System.arraycopy(rowColumns[i], 0, columns, rowStart[i], rowColumns[i].length);
+            System.arraycopy(rowWeights[i], 0, weights, rowStart[i], rowWeights[i].length);
+        }
+        return new WeightMatrix(labels, rowStart, columns, weights);
+    }
+
+    /**
+     * Build a matrix directly from CSR arrays; the caller must not keep
+     * references to the arrays.
+     */
+    static WeightMatrix fromRows(String[] labels, int[] rowStart, int[] columns, int[] weights) {
+        return new WeightMatrix(labels, rowStart, columns, weights);
+    }
+
+    /** @return the number of vertices */
+    public int size() {
+        return labels.length;
+    }
+
+    /** @return the number of edges */
+    public int edgeCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param index a vertex index, 0 <= index < size()
+     * @return the label of that vertex
+     */
+    public String label(int index) {
+        return labels[index];
+    }
+
+    /**
+     * @param label a label
+     * @return the index of the vertex with that label, or -1 if there is none
+     */
+    public int indexOf(String label) {
+        int index = Arrays.binarySearch(labels, label);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * @param row a vertex index, 0 <= row <= size()
+     * @return the index, in per-edge arrays, of the first edge of row; for
+     *         row == size(), edgeCount()
+     */
+    public int rowStart(int row) {
+        return rowStart[row];
+    }
+
+    /**
+     * @param edge an edge index, 0 <= edge < edgeCount()
+     * @return the index of the target vertex of that edge
+     */
+    public int column(int edge) {
+        return columns[edge];
+    }
+
+    /**
+     * @param edge an edge index, 0 <= edge < edgeCount()
+     * @return the weight of that edge
+     */
+    public int weight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * @param label a label
+     * @return the targets of the vertex with that label and the weights of the
+     *         edges to them, as Graph.targets() would return
+     */
+    public Map<String, Integer> targets(String label) {
+        Map<String, Integer> targets = new HashMap<>();
+        int row = indexOf(label);
+        if (row >= 0) {
+            for (int e = rowStart[row]; e < rowStart[row + 1]; e++) {
+                targets.put(labels[columns[e]], weights[e]);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Compute the total outgoing weight of every vertex.
+     *
+     * @return an array a of length size() where a[i] is the sum of the weights
+     *         of the edges out of vertex i
+     */
+    public long[] rowSums() {
+        return rowSums(WeightKernels.best());
+    }
+
+    long[] rowSums(WeightKernels kernels) {
+        long[] sums = new long[labels.length];
+        for (int row = 0; row < labels.length; row++) {
+            sums[row] = kernels.sum(weights, rowStart[row], rowStart[row + 1]);
+        }
+        return sums;
+    }
+
+    /**
+     * Normalize each row into a probability distribution.
+     *
+     * @return an array p of length edgeCount() where p[e] is the weight of
+     *         edge e divided by the total outgoing weight of its source
+     */
+    public double[] normalizeRows() {
+        return normalizeRows(WeightKernels.best());
+    }
+
+    double[] normalizeRows(WeightKernels kernels) {
+        double[] probabilities = new double[weights.length];
+        for (int row = 0; row < labels.length; row++) {
+            int start = rowStart[row];
+            int end = rowStart[row + 1];
+            double inverse = 1.0 / kernels.sum(weights, start, end);
+            kernels.scale(weights, start, end, inverse, probabilities);
+        }
+        return probabilities;
+    }
+
+    /**
+     * Scale every weight by a constant factor.
+     *
+     * @param factor scale factor
+     * @return an array s of length edgeCount() where s[e] is the weight of
+     *         edge e times factor
+     */
+    public double[] scaleWeights(double factor) {
+        return scaleWeights(factor, WeightKernels.best());
+    }
+
+    double[] scaleWeights(double factor, WeightKernels kernels) {
+        double[] scaled = new double[weights.length];
+        kernels.scale(weights, 0, weights.length, factor, scaled);
+        return scaled;
+    }
+
+    /**
+     * Find the heaviest edges out of every vertex.
+     *
+     * @param k maximum number of edges per row, nonnegative
+     * @return an array t of length size() where t[i] holds the target indices
+     *         of the min(k, outdegree) heaviest edges out of vertex i, by
+     *         decreasing weight and then increasing target index
+     * @throws IllegalArgumentException if k is negative
+     */
+    public int[][] topKPerRow(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be nonnegative: " + k);
+        }
+        int[][] top = new int[labels.length][];
+        int[] heap = new int[k];
+        for (int row = 0; row < labels.length; row++) {
+            int start = rowStart[row];
+            int end = rowStart[row + 1];
+            int size = 0;
+            // heap holds edge indices, worst edge at heap[0]
+            for (int e = start; e < end; e++) {
+                if (size < k) {
+                    heap[size] = e;
+                    siftUp(heap, size++);
+                } else if (k > 0 && better(e, heap[0])) {
+                    heap[0] = e;
+                    siftDown(heap, size);
+                }
+            }
+            int[] best = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                best[i] = columns[heap[0]];
+                heap[0] = heap[i];
+                siftDown(heap, i);
+            }
+            top[row] = best;
+        }
+        return top;
+    }
+
+    // true iff edge a ranks before edge b: heavier, or as heavy with a lower column
+    private boolean better(int a, int b) {
+        return weights[a] > weights[b] || (weights[a] == weights[b] && columns[a] < columns[b]);
+    }
+
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!better(heap[parent], heap[i])) {
+                return;
+            }
+            int swap = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = swap;
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int worst = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (better(heap[worst], heap[child])) {
+                    worst = child;
+                }
+            }
+            if (worst == i) {
+                return;
+            }
+            int swap = heap[worst];
+            heap[worst] = heap[i];
+            heap[i] = swap;
+            i = worst;
+        }
+    }
+
+    /**
+     * Copy this matrix into a graph.
+     *
+     * @param graph graph to add the vertices and edges of this matrix to;
+     *        existing edges between the same vertices are overwritten
+     * @return graph
+     */
+    public Graph<String> copyInto(Graph<String> graph) {
+        for (int row = 0; row < labels.length; row++) {
+            graph.add(labels[row]);
+            for (int e = rowStart[row]; e < rowStart[row + 1]; e++) {
+                graph.set(labels[row], labels[columns[e]], weights[e]);
+            }
+        }
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return "WeightMatrix(" + labels.length + " vertices, " + columns.length + " edges)";
+    }
+}
@@ -0,0 +1,81 @@
+package poet;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * An immutable candidate bridge word between two words of a poem, together
+ * with the weight of the two-edge-long path w1 -> word -> w2 through it.
+ */
+public class Bridge {
+
+    /** Orders bridges best first: by decreasing weight, then by word. */
+    public static final Comparator<Bridge> BEST_FIRST =
+            Comparator.comparingInt(Bridge::getWeight).reversed().thenComparing(Bridge::getWord);
+
+    private final String word;
+    private final int weight;
+
+    // Abstraction function:
+    //   Represents the bridge word `word` on a path of total weight `weight`.
+    // Representation invariant:
+    //   word is not null, weight > 0
+    // Safety from rep exposure:
+    //   Fields are private, final, and of immutable types.
+
+    /**
+     * Create a bridge.
+     *
+     * @param word the bridge word
+     * @param weight the weight of the path through the bridge word, positive
+     */
+    public Bridge(String word, int weight) {
+        this.word = word;
+        this.weight = weight;
+        checkRep();
+    }
+
+    /**
+     * Compute the weight of a two-edge-long path.
+     * 
+     * @param first weight of the first edge, positive
+     * @param second weight of the second edge, positive
+     * @return first + second, or Integer.MAX_VALUE if the sum overflows an int
+     */
+    public static int pathWeight(int first, int second) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) first + second);
+    }
+    
+    private void checkRep() {
+        assert word != null : "Bridge word is null";
+        assert weight > 0 : "Bridge weight must be positive";
+    }
+
+    /** @return the bridge word */
+    public String getWord() {
+        return word;
+    }
+
+    /** @return the weight of the two-edge-long path through the bridge word */
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Bridge bridge = (Bridge) obj;
+        return word.equals(bridge.word) && weight == bridge.weight;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(word, weight);
+    }
+
+    @Override
+    public String toString() {
+        return word + "=" + weight;
+    }
+}
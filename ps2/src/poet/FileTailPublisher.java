@@ -0,0 +1,193 @@
+package poet;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Flow.Publisher of the lines of a text file, read as they are appended:
+ * a local stand-in for a message-queue consumer. Lines are read on a
+ * dedicated daemon thread, which reads no further than one line ahead of the
+ * subscriber's outstanding demand.
+ *
+ * <p>When following, the publisher waits at the end of the file for more
+ * lines until closed, then completes; otherwise it completes at the end of
+ * the file. Lines end at "\n" or "\r\n"; any other "\r" is part of the line.
+ * A final line without a terminating newline is published only when the
+ * publisher completes. Lines are split on bytes and decoded as UTF-8 only
+ * once complete, so a character whose bytes are appended in separate writes
+ * is still decoded whole.
+ *
+ * <p>All signals to the subscriber after onSubscribe, including onError for
+ * a non-positive request, are sent from the reading thread.
+ */
+public class FileTailPublisher implements Flow.Publisher<String>, AutoCloseable {
+
+    private static final long POLL_MILLIS = 20;
+    private static final int INITIAL_LINE_BYTES = 128;
+
+    private final File file;
+    private final boolean follow;
+    private volatile boolean closed = false;
+    private boolean subscribed = false;
+
+    // Abstraction function:
+    //   Represents the stream of lines of file, unending if follow and not
+    //   closed.
+    // Representation invariant:
+    //   file is not null
+    // Safety from rep exposure:
+    //   All fields are private and immutable or primitive.
+
+    /**
+     * Create a publisher of the lines of a file.
+     *
+     * @param file UTF-8 text file to read
+     * @param follow if true, keep waiting for appended lines until closed
+     */
+    public FileTailPublisher(File file, boolean follow) {
+        this.file = file;
+        this.follow = follow;
+    }
+
+    /**
+     * Subscribe to the lines of the file. Only one subscriber is supported;
+     * later subscribers receive an IllegalStateException through onError.
+     * A subscriber receives an IOException through onError if the file
+     * cannot be read.
+     */
+    @Override
+    public synchronized void subscribe(Subscriber<? super String> subscriber) {
+        Tail tail = new Tail(subscriber);
+        if (subscribed) {
+            subscriber.onSubscribe(tail);
+            subscriber.onError(new IllegalStateException("already subscribed"));
+            return;
+        }
+        subscribed = true;
+        subscriber.onSubscribe(tail);
+        Thread reader = new Thread(tail::run, "tail-" + file.getName());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Stop following the file: the subscriber is sent the remaining lines
+     * and then completed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    // The subscription of the single subscriber, and the loop that feeds it.
+    private class Tail implements Flow.Subscription {
+
+        private final Subscriber<? super String> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled = false;
+        private volatile IllegalArgumentException rejected = null;
+
+        Tail(Subscriber<? super String> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // signalled by the reading thread, which may be in onNext now
+                rejected = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        private boolean stopped() {
+            return cancelled || rejected != null;
+        }
+
+        void run() {
+            boolean terminated = false;
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                byte[] line = new byte[INITIAL_LINE_BYTES];
+                int length = 0;
+                while (!stopped()) {
+                    int b = in.read();
+                    if (b < 0) {
+                        if (!follow || closed) {
+                            break;
+                        }
+                        Thread.sleep(POLL_MILLIS);
+                    } else if (b == '\n') {
+                        if (length > 0 && line[length - 1] == '\r') {
+                            length--; // CRLF terminator
+                        }
+                        publish(line, length);
+                        length = 0;
+                    } else {
+                        if (length == line.length) {
+                            line = Arrays.copyOf(line, 2 * length);
+                        }
+                        line[length++] = (byte) b;
+                    }
+                }
+                if (length > 0 && !stopped()) {
+                    publish(line, length);
+                }
+                if (!stopped()) {
+                    terminated = true;
+                    subscriber.onComplete();
+                }
+            } catch (IOException e) {
+                if (!terminated && !stopped()) {
+                    terminated = true;
+                    subscriber.onError(e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!terminated && !stopped()) {
+                    terminated = true;
+                    subscriber.onError(e);
+                }
+            }
+            if (!terminated && rejected != null && !cancelled) {
+                subscriber.onError(rejected);
+            }
+        }
+
+        // Wait for demand, then send line[0..length) unless stopped meanwhile.
+        private void publish(byte[] line, int length) throws InterruptedException {
+            awaitDemand();
+            if (stopped()) {
+                return;
+            }
+            demand.decrementAndGet();
+            subscriber.onNext(new String(line, 0, length, StandardCharsets.UTF_8));
+        }
+
+        private synchronized void awaitDemand() throws InterruptedException {
+            while (demand.get() == 0 && !stopped()) {
+                wait();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileTailPublisher(" + file + (follow ? ", follow" : "") + ")";
+    }
+}
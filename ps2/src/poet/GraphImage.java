@@ -0,0 +1,151 @@
+package poet;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import graph.Graph;
+import graph.OffHeapGraph;
+
+/**
+ * A compact binary image of a word affinity graph, so that short-lived
+ * processes can load a prebuilt graph instead of re-deriving it from corpus
+ * text on every launch.
+ * 
+ * <p>Format: the magic number, the number of vertices, each vertex label as
+ * its length in bytes followed by its UTF-8 bytes, the number of edges, then
+ * for each edge the indices of its source and target vertex and its weight.
+ * All numbers are big-endian ints.
+ * 
+ * <p>Run {@link #main(String[])} at build time to produce an image from a
+ * corpus, and load it with {@link GraphPoet#fromImage(File)}.
+ */
+public class GraphImage {
+    
+    private static final int MAGIC = 0x50474932; // "PGI2"
+    
+    private static final int EDGE_BYTES = 3 * Integer.BYTES;
+    
+    private GraphImage() {
+        throw new AssertionError("utility class");
+    }
+    
+    /**
+     * Write an image of a graph.
+     * 
+     * @param graph graph to write
+     * @param image file to write the image to; overwritten if it exists
+     * @throws IOException if the image cannot be written
+     */
+    public static void write(Graph<String> graph, File image) throws IOException {
+        List<String> labels = new ArrayList<>(graph.vertices());
+        Collections.sort(labels);
+        Map<String, Integer> index = new HashMap<>();
+        for (String label : labels) {
+            index.put(label, index.size());
+        }
+        List<int[]> edges = new ArrayList<>();
+        for (String source : labels) {
+            for (Map.Entry<String, Integer> edge : graph.targets(source).entrySet()) {
+                edges.add(new int[] { index.get(source), index.get(edge.getKey()), edge.getValue() });
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(image)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(labels.size());
+            for (String label : labels) {
+                byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(edges.size());
+            for (int[] edge : edges) {
+                out.writeInt(edge[0]);
+                out.writeInt(edge[1]);
+                out.writeInt(edge[2]);
+            }
+        }
+    }
+    
+    /**
+     * Read an image into a graph.
+     * 
+     * @param image image file written by write()
+     * @param graph empty graph to fill
+     * @return graph, now holding the vertices and edges of the image
+     * @throws IOException if the image cannot be read or is not a valid image,
+     *         including an image that is truncated, has counts or lengths
+     *         inconsistent with its size, or repeats a label or an edge
+     * @throws IllegalArgumentException if graph is not empty
+     */
+    public static Graph<String> read(File image, Graph<String> graph) throws IOException {
+        if (!graph.vertices().isEmpty()) {
+            throw new IllegalArgumentException("graph must be empty");
+        }
+        long length = image.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(image)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a graph image: " + image);
+            }
+            int vertices = in.readInt();
+            long position = 2 * Integer.BYTES;
+            // every label takes at least its length field
+            if (vertices < 0 || vertices > (length - position) / Integer.BYTES) {
+                throw new IOException("corrupt graph image: " + image + ": bad vertex count " + vertices);
+            }
+            String[] labels = new String[vertices];
+            for (int i = 0; i < labels.length; i++) {
+                int bytes = in.readInt();
+                position += Integer.BYTES;
+                if (bytes < 0 || bytes > length - position) {
+                    throw new IOException("corrupt graph image: " + image + ": bad label length " + bytes);
+                }
+                byte[] label = new byte[bytes];
+                in.readFully(label);
+                position += bytes;
+                labels[i] = new String(label, StandardCharsets.UTF_8);
+                if (!graph.add(labels[i])) {
+                    throw new IOException("corrupt graph image: " + image + ": repeated label");
+                }
+            }
+            int edges = in.readInt();
+            position += Integer.BYTES;
+            if (edges < 0 || (long) edges * EDGE_BYTES != length - position) {
+                throw new IOException("corrupt graph image: " + image + ": bad edge count " + edges);
+            }
+            for (int i = 0; i < edges; i++) {
+                int source = in.readInt();
+                int target = in.readInt();
+                int weight = in.readInt();
+                if (source < 0 || source >= labels.length || target < 0 || target >= labels.length || weight <= 0) {
+                    throw new IOException("corrupt graph image: " + image);
+                }
+                if (graph.set(labels[source], labels[target], weight) != 0) {
+                    throw new IOException("corrupt graph image: " + image + ": repeated edge");
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("truncated graph image: " + image, e);
+        }
+        return graph;
+    }
+    
+    /**
+     * Build a graph image from a corpus.
+     * 
+     * @param args corpus text file and output image file
+     * @throws IOException if the corpus cannot be read or the image written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: GraphImage <corpus> <image>");
+            System.exit(2);
+        }
+        try (OffHeapGraph graph = new OffHeapGraph()) {
+            GraphPoet.load(new File(args[0]), graph);
+            write(graph, new File(args[1]));
+            System.out.println("wrote " + graph.vertices().size() + " words, " + graph.edgeCount()
+                    + " edges to " + args[1]);
+        }
+    }
+}
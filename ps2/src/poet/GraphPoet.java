@@ -5,8 +5,14 @@ package poet;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
 
+import graph.AdaptiveGraph;
+import graph.BatchGraph;
 import graph.Graph;
+import graph.StatisticsGraph;
 
 /**
  * A graph-based poetry generator.
@@ -52,37 +58,329 @@ import graph.Graph;
  */
 public class GraphPoet {
     
-    private final Graph<String> graph = Graph.empty();
+    /**
+     * Suggested budget, in two-hop paths, for precomputed hub bridge tables.
+     * Building tables this large takes several times as long as loading the
+     * graph, so precomputation is opt-in: only poets created with an explicit
+     * budget build them.
+     */
+    public static final long DEFAULT_HUB_BUDGET = 1 << 22;
+    
+    private static final int HUB_DEPTH = 4;
+    
+    private final Graph<String> graph;
+    private final HubBridgeIndex hubs;
     
     // Abstraction function:
-    //   TODO
+    //   Represents the word affinity graph of a corpus: vertices are the
+    //   lower-case words of the corpus, and the weight of edge w1 -> w2 is the
+    //   number of times w1 is immediately followed by w2 in the corpus.
     // Representation invariant:
-    //   TODO
+    //   every vertex of graph is a non-empty lower-case string without
+    //   whitespace, and every edge weight is positive
+    //   hubs is an index built from the final graph, which is never mutated
+    //   after construction.
     // Safety from rep exposure:
-    //   TODO
+    //   graph is private and final and never returned; a graph passed to the
+    //   constructor is owned by the poet from then on. All observers return
+    //   new strings, lists, or immutable Bridge values.
     
     /**
-     * Create a new poet with the graph from corpus (as described above).
+     * Create a new poet with the graph from corpus (as described above),
+     * without precomputed hub bridge tables.
      * 
      * @param corpus text file from which to derive the poet's affinity graph
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-        throw new RuntimeException("not implemented");
+        this(corpus, Graph.empty());
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * stored in the given graph, without precomputed hub bridge tables. If
+     * graph is a {@link BatchGraph}, bridge lookups for many word pairs are
+     * sent to it as batch queries.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param graph empty graph to hold the affinity graph; the poet takes
+     *        ownership of it, and the caller must not use it afterwards
+     * @throws IOException if the corpus file cannot be found or read
+     * @throws IllegalArgumentException if graph is not empty
+     */
+    public GraphPoet(File corpus, Graph<String> graph) throws IOException {
+        this(corpus, graph, 0);
     }
     
-    // TODO checkRep
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * stored in the given graph, precomputing bridge tables for hub words
+     * within the given budget, such as {@link #DEFAULT_HUB_BUDGET}. Hubs are
+     * chosen automatically from the degree distribution of the graph, using
+     * its statistics if it is a {@link StatisticsGraph}. The tables make
+     * bridge lookups between hub words cheaper, at a construction cost that
+     * pays off only for long-running poets answering many queries.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param graph empty graph to hold the affinity graph; the poet takes
+     *        ownership of it, and the caller must not use it afterwards
+     * @param hubBudget maximum number of two-hop paths to precompute for hub
+     *        words, nonnegative; 0 disables precomputation
+     * @throws IOException if the corpus file cannot be found or read
+     * @throws IllegalArgumentException if graph is not empty or hubBudget is
+     *         negative
+     */
+    public GraphPoet(File corpus, Graph<String> graph, long hubBudget) throws IOException {
+        this(load(corpus, graph), hubBudget);
+    }
+    
+    /**
+     * Create a new poet from a prebuilt graph image, written by
+     * {@link GraphImage#write(Graph, File)}, without precomputed hub bridge
+     * tables. This avoids re-deriving the affinity graph from the corpus
+     * text, and is the fast path for short-lived processes.
+     * 
+     * @param image graph image file
+     * @return a poet equivalent to one created from the corpus of the image
+     * @throws IOException if the image cannot be found or read, or is not a
+     *         valid graph image
+     */
+    public static GraphPoet fromImage(File image) throws IOException {
+        return fromImage(image, 0);
+    }
+    
+    /**
+     * Create a new poet from a prebuilt graph image, written by
+     * {@link GraphImage#write(Graph, File)}, precomputing bridge tables for
+     * hub words within the given budget as
+     * {@link #GraphPoet(File, Graph, long)} does.
+     * 
+     * @param image graph image file
+     * @param hubBudget maximum number of two-hop paths to precompute for hub
+     *        words, nonnegative; 0 disables precomputation
+     * @return a poet equivalent to one created from the corpus of the image
+     * @throws IOException if the image cannot be found or read, or is not a
+     *         valid graph image
+     * @throws IllegalArgumentException if hubBudget is negative
+     */
+    public static GraphPoet fromImage(File image, long hubBudget) throws IOException {
+        if (hubBudget < 0) {
+            throw new IllegalArgumentException("hub budget must be nonnegative: " + hubBudget);
+        }
+        // thresholds of 0 keep the graph in its hashed SPARSE representation
+        // from the first vertex: constant-time set while loading, and no
+        // migrations, whatever the density of the image
+        Graph<String> graph = new AdaptiveGraph<>(0, 0, AdaptiveGraph.DEFAULT_DENSE_DENSITY);
+        // degree statistics are only needed to choose hubs
+        if (hubBudget > 0) {
+            graph = new StatisticsGraph<>(graph);
+        }
+        return new GraphPoet(GraphImage.read(image, graph), hubBudget);
+    }
+    
+    private GraphPoet(Graph<String> graph, long hubBudget) {
+        if (hubBudget < 0) {
+            throw new IllegalArgumentException("hub budget must be nonnegative: " + hubBudget);
+        }
+        this.graph = graph;
+        this.hubs = new HubBridgeIndex(graph, hubBudget, HUB_DEPTH);
+        checkRep();
+    }
+    
+    /**
+     * Derive the affinity graph of a corpus (as described above).
+     * 
+     * @param corpus text file from which to derive the affinity graph
+     * @param graph empty graph to fill
+     * @return graph, now holding the affinity graph of corpus
+     * @throws IOException if the corpus file cannot be found or read
+     * @throws IllegalArgumentException if graph is not empty
+     */
+    static Graph<String> load(File corpus, Graph<String> graph) throws IOException {
+        if (!graph.vertices().isEmpty()) {
+            throw new IllegalArgumentException("graph must be empty");
+        }
+        String text = new String(Files.readAllBytes(corpus.toPath()), StandardCharsets.UTF_8);
+        List<String> words = words(text);
+        for (String word : words) {
+            graph.add(word.toLowerCase());
+        }
+        for (int i = 0; i + 1 < words.size(); i++) {
+            String source = words.get(i).toLowerCase();
+            String target = words.get(i + 1).toLowerCase();
+            int previous = graph.set(source, target, 1);
+            if (previous != 0) {
+                graph.set(source, target, previous + 1);
+            }
+        }
+        return graph;
+    }
+    
+    private void checkRep() {
+        for (String vertex : graph.vertices()) {
+            assert !vertex.isEmpty() : "Empty word";
+            assert vertex.equals(vertex.toLowerCase()) : "Word not lower case";
+        }
+    }
+    
+    /**
+     * Split text into words: maximal runs of non-whitespace characters.
+     * 
+     * @param text text to split
+     * @return the words of text, in order, with their original case
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.split("\\s+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+    
+    /**
+     * Find the best bridge words between two words.
+     * 
+     * @param w1 first word, case-insensitive
+     * @param w2 second word, case-insensitive
+     * @param k maximum number of bridges to return, nonnegative
+     * @return up to k bridges b such that w1 -> b -> w2 is a two-edge-long path
+     *         in the affinity graph, with the weight of that path; these are the
+     *         k highest-weight such paths, ordered by decreasing weight and
+     *         then alphabetically by bridge word
+     * @throws IllegalArgumentException if k is negative
+     */
+    public List<Bridge> bridges(String w1, String w2, int k) {
+        return bridges(Collections.singletonList(new AbstractMap.SimpleImmutableEntry<>(w1, w2)), k).get(0);
+    }
+    
+    /**
+     * Find the best bridge words for many pairs of words at once. Each
+     * distinct word is looked up in the affinity graph only once, however many
+     * pairs it appears in, and a BatchGraph receives all the lookups as two
+     * batch queries. Pairs covered by the precomputed tables of hub words
+     * need no lookup at all.
+     * 
+     * @param pairs pairs of words (w1, w2), case-insensitive
+     * @param k maximum number of bridges to return per pair, nonnegative
+     * @return a list with one element per pair, in order, equal to
+     *         bridges(w1, w2, k) for that pair
+     * @throws IllegalArgumentException if k is negative
+     */
+    public List<List<Bridge>> bridges(List<? extends Map.Entry<String, String>> pairs, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be nonnegative: " + k);
+        }
+        List<List<Bridge>> result = new ArrayList<>(pairs.size());
+        Set<String> firsts = new HashSet<>();
+        Set<String> seconds = new HashSet<>();
+        for (Map.Entry<String, String> pair : pairs) {
+            String w1 = pair.getKey().toLowerCase();
+            String w2 = pair.getValue().toLowerCase();
+            List<Bridge> precomputed = hubs.lookup(w1, w2, k);
+            result.add(precomputed == null ? null : new ArrayList<>(precomputed));
+            if (precomputed == null) {
+                firsts.add(w1);
+                seconds.add(w2);
+            }
+        }
+        Map<String, Map<String, Integer>> targets = HubBridgeIndex.targets(graph, firsts);
+        Map<String, Map<String, Integer>> sources = HubBridgeIndex.sources(graph, seconds);
+        for (int i = 0; i < pairs.size(); i++) {
+            if (result.get(i) == null) {
+                Map.Entry<String, String> pair = pairs.get(i);
+                result.set(i, topBridges(targets.get(pair.getKey().toLowerCase()),
+                        sources.get(pair.getValue().toLowerCase()), k));
+            }
+        }
+        return result;
+    }
+    
+    /*
+     * Select the k best bridges b with out.get(b) and in.get(b) both present.
+     * Iterates over the smaller map, probes the larger, and keeps the best k
+     * seen so far in a min-heap whose head is the worst of them, so selection
+     * costs O(min degree * log k) instead of sorting every candidate.
+     */
+    private static List<Bridge> topBridges(Map<String, Integer> out, Map<String, Integer> in, int k) {
+        if (k == 0 || out.isEmpty() || in.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, Integer> smaller = out.size() <= in.size() ? out : in;
+        Map<String, Integer> larger = smaller == out ? in : out;
+        PriorityQueue<Bridge> heap = new PriorityQueue<>(k + 1, Bridge.BEST_FIRST.reversed());
+        for (Map.Entry<String, Integer> entry : smaller.entrySet()) {
+            Integer other = larger.get(entry.getKey());
+            if (other == null) {
+                continue;
+            }
+            Bridge candidate = new Bridge(entry.getKey(), Bridge.pathWeight(entry.getValue(), other));
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (Bridge.BEST_FIRST.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        List<Bridge> best = new ArrayList<>(heap);
+        best.sort(Bridge.BEST_FIRST);
+        return best;
+    }
     
     /**
      * Generate a poem.
      * 
      * @param input string from which to create the poem
-     * @return poem (as described above)
+     * @return poem (as described above); when several bridge words tie for
+     *         the maximum weight, the alphabetically first one is used
      */
     public String poem(String input) {
-        throw new RuntimeException("not implemented");
+        return compose(words(input));
     }
     
-    // TODO toString()
+    /**
+     * Generate a poem from input already split into words.
+     * 
+     * @param words the words of the input, with their original case
+     * @return poem (as described above)
+     */
+    String compose(List<String> words) {
+        List<Map.Entry<String, String>> pairs = new ArrayList<>();
+        for (int i = 0; i + 1 < words.size(); i++) {
+            pairs.add(new AbstractMap.SimpleImmutableEntry<>(words.get(i), words.get(i + 1)));
+        }
+        return compose(words, bridges(pairs, 1));
+    }
+    
+    /**
+     * Join the words of a poem with their bridges.
+     * 
+     * @param words the words of the input, with their original case
+     * @param bridges for each adjacent pair of words, in order, the best bridge
+     *        or an empty list if there is none
+     * @return poem (as described above)
+     */
+    static String compose(List<String> words, List<List<Bridge>> bridges) {
+        StringBuilder poem = new StringBuilder();
+        for (int i = 0; i < words.size(); i++) {
+            if (i > 0) {
+                List<Bridge> bridge = bridges.get(i - 1);
+                if (!bridge.isEmpty()) {
+                    poem.append(bridge.get(0).getWord()).append(' ');
+                }
+            }
+            poem.append(words.get(i));
+            if (i + 1 < words.size()) {
+                poem.append(' ');
+            }
+        }
+        return poem.toString();
+    }
+    
+    @Override
+    public String toString() {
+        return "GraphPoet" + graph.vertices();
+    }
     
 }
@@ -0,0 +1,279 @@
+package poet;
+
+import java.util.*;
+
+import graph.BatchGraph;
+import graph.Graph;
+import graph.GraphStatistics;
+import graph.StatisticsGraph;
+
+/**
+ * Precomputed best-bridge tables for the hub words of an affinity graph.
+ *
+ * <p>Intersecting targets(w1) with sources(w2) costs O(min degree) per pair,
+ * which is expensive when both words are hubs. For every out-hub w1 this
+ * index stores, for each w2 two hops away, the best bridges from w1 to w2;
+ * likewise for every in-hub w2 it stores the best bridges from each w1 two
+ * hops before it. Pairs involving no hub are left to on-the-fly intersection.
+ *
+ * <p>Hub candidates are vertices whose out- or in-degree is at least
+ * max(MIN_HUB_DEGREE, HUB_FACTOR * mean degree). Candidates are admitted in
+ * decreasing order of degree while the total number of two-hop paths they
+ * cover fits in the memory budget; the degree of the last admitted candidate
+ * is the chosen threshold.
+ *
+ * <p>The index is a snapshot: it must be rebuilt if the graph changes.
+ */
+class HubBridgeIndex {
+
+    /** Smallest degree that can make a vertex a hub. */
+    static final int MIN_HUB_DEGREE = 8;
+
+    /** Hubs have at least this many times the mean degree. */
+    static final int HUB_FACTOR = 4;
+
+    private final int depth;
+    private final int threshold;
+    private final long entries;
+    private final Map<String, Map<String, List<Bridge>>> forward = new HashMap<>();
+    private final Map<String, Map<String, List<Bridge>>> backward = new HashMap<>();
+
+    // Abstraction function:
+    //   Represents the tables forward[w1][w2] = best bridges from w1 to w2 for
+    //   out-hubs w1, and backward[w2][w1] = best bridges from w1 to w2 for
+    //   in-hubs w2, each holding at most `depth` bridges; threshold is the
+    //   smallest degree among admitted hubs, and entries the number of
+    //   bridges stored.
+    // Representation invariant:
+    //   depth > 0; every stored list is non-empty, has at most depth bridges,
+    //   and is sorted by Bridge.BEST_FIRST
+    // Safety from rep exposure:
+    //   Fields are private and final; lookups return unmodifiable lists.
+
+    /**
+     * Build the index for a graph.
+     *
+     * @param graph affinity graph; degrees are taken from its statistics if it
+     *        is a StatisticsGraph, and adjacency is fetched in batches if it is
+     *        a BatchGraph
+     * @param budget maximum number of two-hop paths to precompute, nonnegative;
+     *        0 disables the index
+     * @param depth number of best bridges to store per word pair, positive
+     */
+    HubBridgeIndex(Graph<String> graph, long budget, int depth) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("depth must be positive: " + depth);
+        }
+        this.depth = depth;
+        if (budget == 0) {
+            this.threshold = Integer.MAX_VALUE;
+            this.entries = 0;
+            checkRep();
+            return;
+        }
+
+        Map<String, Integer> outDegrees = new HashMap<>();
+        Map<String, Integer> inDegrees = new HashMap<>();
+        degrees(graph, outDegrees, inDegrees);
+
+        long degreeSum = 0;
+        for (int degree : outDegrees.values()) {
+            degreeSum += degree;
+        }
+        long mean = outDegrees.isEmpty() ? 0 : (degreeSum + outDegrees.size() - 1) / outDegrees.size();
+        long floor = Math.max(MIN_HUB_DEGREE, HUB_FACTOR * mean);
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (String vertex : outDegrees.keySet()) {
+            if (outDegrees.get(vertex) >= floor) {
+                candidates.add(new Candidate(vertex, true, outDegrees.get(vertex)));
+            }
+            if (inDegrees.get(vertex) >= floor) {
+                candidates.add(new Candidate(vertex, false, inDegrees.get(vertex)));
+            }
+        }
+        candidates.sort((a, b) -> Integer.compare(b.degree, a.degree));
+
+        long spent = 0;
+        int last = Integer.MAX_VALUE;
+        for (Candidate candidate : candidates) {
+            Map<String, Integer> firstHop =
+                    candidate.forward ? graph.targets(candidate.hub) : graph.sources(candidate.hub);
+            long cost = 0;
+            for (String bridge : firstHop.keySet()) {
+                cost += candidate.forward ? outDegrees.get(bridge) : inDegrees.get(bridge);
+            }
+            if (spent + cost > budget) {
+                break;
+            }
+            spent += cost;
+            last = candidate.degree;
+            Map<String, Map<String, Integer>> secondHop = candidate.forward
+                    ? targets(graph, firstHop.keySet()) : sources(graph, firstHop.keySet());
+            (candidate.forward ? forward : backward).put(candidate.hub, table(firstHop, secondHop));
+        }
+        this.threshold = last;
+
+        long stored = 0;
+        for (Map<String, Map<String, List<Bridge>>> tables : Arrays.asList(forward, backward)) {
+            for (Map<String, List<Bridge>> table : tables.values()) {
+                for (List<Bridge> bridges : table.values()) {
+                    stored += bridges.size();
+                }
+            }
+        }
+        this.entries = stored;
+        checkRep();
+    }
+
+    // A vertex that may get a table: out-hub if forward, otherwise in-hub.
+    private static class Candidate {
+        final String hub;
+        final boolean forward;
+        final int degree;
+
+        Candidate(String hub, boolean forward, int degree) {
+            this.hub = hub;
+            this.forward = forward;
+            this.degree = degree;
+        }
+    }
+
+    private void checkRep() {
+        assert depth > 0 : "Depth must be positive";
+        assert entries >= 0 : "Negative entry count";
+    }
+
+    private static void degrees(Graph<String> graph, Map<String, Integer> out, Map<String, Integer> in) {
+        Set<String> vertices = graph.vertices();
+        if (graph instanceof StatisticsGraph) {
+            GraphStatistics<String> statistics = ((StatisticsGraph<String>) graph).statistics();
+            for (String vertex : vertices) {
+                out.put(vertex, statistics.outDegree(vertex));
+                in.put(vertex, statistics.inDegree(vertex));
+            }
+            return;
+        }
+        for (String vertex : vertices) {
+            out.put(vertex, 0);
+            in.put(vertex, 0);
+        }
+        for (Map.Entry<String, Map<String, Integer>> entry : targets(graph, vertices).entrySet()) {
+            out.put(entry.getKey(), entry.getValue().size());
+            for (String target : entry.getValue().keySet()) {
+                in.merge(target, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * @return targets(source) for every given source, fetched in one batch
+     *         query if graph is a BatchGraph
+     */
+    static Map<String, Map<String, Integer>> targets(Graph<String> graph, Collection<String> sources) {
+        if (graph instanceof BatchGraph) {
+            return ((BatchGraph<String>) graph).targets(sources);
+        }
+        Map<String, Map<String, Integer>> targets = new HashMap<>();
+        for (String source : sources) {
+            targets.put(source, graph.targets(source));
+        }
+        return targets;
+    }
+
+    /**
+     * @return sources(target) for every given target, fetched in one batch
+     *         query if graph is a BatchGraph
+     */
+    static Map<String, Map<String, Integer>> sources(Graph<String> graph, Collection<String> targets) {
+        if (graph instanceof BatchGraph) {
+            return ((BatchGraph<String>) graph).sources(targets);
+        }
+        Map<String, Map<String, Integer>> sources = new HashMap<>();
+        for (String target : targets) {
+            sources.put(target, graph.sources(target));
+        }
+        return sources;
+    }
+
+    /*
+     * Build the table for one hub: firstHop maps each bridge b to the weight
+     * between the hub and b, secondHop maps b to its far neighbours w and the
+     * weight between b and w. Keeps the best `depth` bridges per far word.
+     */
+    private Map<String, List<Bridge>> table(Map<String, Integer> firstHop,
+            Map<String, Map<String, Integer>> secondHop) {
+        Map<String, PriorityQueue<Bridge>> heaps = new HashMap<>();
+        for (Map.Entry<String, Integer> hop : firstHop.entrySet()) {
+            for (Map.Entry<String, Integer> far : secondHop.get(hop.getKey()).entrySet()) {
+                PriorityQueue<Bridge> heap = heaps.computeIfAbsent(far.getKey(),
+                        word -> new PriorityQueue<>(depth + 1, Bridge.BEST_FIRST.reversed()));
+                Bridge candidate = new Bridge(hop.getKey(), Bridge.pathWeight(hop.getValue(), far.getValue()));
+                if (heap.size() < depth) {
+                    heap.add(candidate);
+                } else if (Bridge.BEST_FIRST.compare(candidate, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(candidate);
+                }
+            }
+        }
+        Map<String, List<Bridge>> table = new HashMap<>();
+        for (Map.Entry<String, PriorityQueue<Bridge>> entry : heaps.entrySet()) {
+            List<Bridge> best = new ArrayList<>(entry.getValue());
+            best.sort(Bridge.BEST_FIRST);
+            table.put(entry.getKey(), Collections.unmodifiableList(best));
+        }
+        return table;
+    }
+
+    /**
+     * Look up the best bridges between two words.
+     *
+     * @param w1 first word, lower case
+     * @param w2 second word, lower case
+     * @param k maximum number of bridges, nonnegative
+     * @return the k best bridges from w1 to w2, as specified by
+     *         GraphPoet.bridges(w1, w2, k), if they are covered by this index;
+     *         otherwise null
+     */
+    List<Bridge> lookup(String w1, String w2, int k) {
+        if (k > depth) {
+            return null;
+        }
+        Map<String, List<Bridge>> table = forward.get(w1);
+        List<Bridge> bridges;
+        if (table != null) {
+            bridges = table.get(w2);
+        } else {
+            table = backward.get(w2);
+            if (table == null) {
+                return null;
+            }
+            bridges = table.get(w1);
+        }
+        if (bridges == null) {
+            return Collections.emptyList();
+        }
+        return bridges.subList(0, Math.min(k, bridges.size()));
+    }
+
+    /** @return the smallest degree of an admitted hub, or Integer.MAX_VALUE if none */
+    int threshold() {
+        return threshold;
+    }
+
+    /** @return the number of hubs with a precomputed table */
+    int hubCount() {
+        return forward.size() + backward.size();
+    }
+
+    /** @return the number of bridges stored across all tables */
+    long entries() {
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return "HubBridgeIndex(" + hubCount() + " hubs, threshold " + threshold + ", " + entries + " entries)";
+    }
+}
@@ -5,24 +5,45 @@ package poet;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 
 /**
  * Example program using GraphPoet.
  * 
+ * <p>By default the poet's graph is derived from the corpus text on every
+ * launch. For short-lived processes, pass {@code --image <file>} to load a
+ * prebuilt graph image instead (see {@link GraphImage}), and run with the
+ * class-data sharing archive described in {@code startup/poet.sh}.
+ * 
  * <p>PS2 instructions: you are free to change this example class.
  */
 public class Main {
     
     /**
-     * Generate example poetry.
+     * Generate example poetry, and report on standard error the time from
+     * JVM start to the first poem.
      * 
-     * @param args unused
-     * @throws IOException if a poet corpus file cannot be found or read
+     * @param args optionally {@code --corpus <file>} to use another corpus, or
+     *        {@code --image <file>} to load a graph image instead of a corpus
+     * @throws IOException if a poet corpus file or graph image cannot be found
+     *         or read
      */
     public static void main(String[] args) throws IOException {
-        final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        final GraphPoet nimoy;
+        if (args.length == 2 && args[0].equals("--image")) {
+            nimoy = GraphPoet.fromImage(new File(args[1]));
+        } else if (args.length == 2 && args[0].equals("--corpus")) {
+            nimoy = new GraphPoet(new File(args[1]));
+        } else if (args.length == 0) {
+            nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        } else {
+            System.err.println("usage: Main [--corpus <file> | --image <file>]");
+            System.exit(2);
+            return;
+        }
         final String input = "Test the system.";
         System.out.println(input + "\n>>>\n" + nimoy.poem(input));
+        System.err.println("time-to-first-poem: " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms");
     }
     
 }
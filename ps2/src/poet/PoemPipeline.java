@@ -0,0 +1,332 @@
+package poet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.function.Function;
+
+/**
+ * A streaming poem generator: a Flow.Processor that turns input lines into
+ * UTF-8 encoded poems, one per line, terminated by a newline, in input order.
+ *
+ * <p>Work is split into three stages, each running on its own thread so that
+ * they overlap: tokenizing lines into words, resolving bridges for the word
+ * pairs of a micro-batch of lines with one GraphPoet.bridges call, and
+ * encoding poems. Every stage has a bounded buffer and only requests more
+ * input from upstream as it consumes what it has, so a slow subscriber slows
+ * the whole pipeline down instead of letting buffers grow.
+ *
+ * <p>A pipeline supports a single upstream publisher. It runs on daemon
+ * threads that exit once they have been idle for a while.
+ */
+public class PoemPipeline implements Flow.Processor<String, byte[]> {
+
+    /** Default number of items buffered by each stage. */
+    public static final int DEFAULT_BUFFER = 256;
+
+    /** Default number of word pairs resolved together. */
+    public static final int DEFAULT_BATCH_PAIRS = 512;
+
+    /** Default time a partial micro-batch waits for more lines, in milliseconds. */
+    public static final long DEFAULT_LINGER_MILLIS = 5;
+
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final MapStage<String, List<String>> tokenizer;
+    private final BridgeStage bridger;
+    private final MapStage<String, byte[]> encoder;
+
+    // Abstraction function:
+    //   Represents the pipeline tokenizer -> bridger -> encoder, where items
+    //   received by this processor go to tokenizer, and subscribers of this
+    //   processor receive the output of encoder.
+    // Representation invariant:
+    //   bridger is subscribed to tokenizer, and encoder to bridger
+    // Safety from rep exposure:
+    //   All fields are private and final; metrics() returns the stages'
+    //   StageMetrics, which cannot be mutated outside this package.
+
+    /**
+     * Create a pipeline with default buffer, batch and linger settings.
+     *
+     * @param poet poet used to resolve bridges
+     */
+    public PoemPipeline(GraphPoet poet) {
+        this(poet, DEFAULT_BUFFER, DEFAULT_BATCH_PAIRS, DEFAULT_LINGER_MILLIS);
+    }
+
+    /**
+     * Create a pipeline.
+     *
+     * @param poet poet used to resolve bridges
+     * @param buffer number of items each stage buffers, positive
+     * @param batchPairs number of word pairs that triggers resolving a
+     *        micro-batch, positive
+     * @param lingerMillis longest time, in milliseconds, a partial micro-batch
+     *        waits for more lines before it is resolved, nonnegative
+     */
+    public PoemPipeline(GraphPoet poet, int buffer, int batchPairs, long lingerMillis) {
+        if (buffer <= 0 || batchPairs <= 0 || lingerMillis < 0) {
+            throw new IllegalArgumentException("invalid pipeline settings");
+        }
+        executor = Executors.newCachedThreadPool(daemon("poem-pipeline"));
+        timer = new ScheduledThreadPoolExecutor(1, daemon("poem-pipeline-linger"));
+        timer.setKeepAliveTime(1, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        timer.setRemoveOnCancelPolicy(true);
+        tokenizer = new MapStage<>("tokenize", buffer, GraphPoet::words);
+        bridger = new BridgeStage(poet, buffer, batchPairs, TimeUnit.MILLISECONDS.toNanos(lingerMillis));
+        encoder = new MapStage<>("serialize", buffer,
+                poem -> (poem + "\n").getBytes(StandardCharsets.UTF_8));
+        tokenizer.subscribe(bridger);
+        bridger.subscribe(encoder);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @return the metrics of each stage, keyed by stage name in pipeline order
+     */
+    public Map<String, StageMetrics> metrics() {
+        Map<String, StageMetrics> metrics = new LinkedHashMap<>();
+        for (Stage<?, ?> stage : Arrays.asList(tokenizer, bridger, encoder)) {
+            metrics.put(stage.metrics.getName(), stage.metrics);
+        }
+        return metrics;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super byte[]> subscriber) {
+        encoder.subscribe(subscriber);
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        tokenizer.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(String line) {
+        tokenizer.onNext(line);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        tokenizer.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        tokenizer.onComplete();
+    }
+
+    /*
+     * A pipeline stage: consumes items from one upstream subscription and
+     * publishes results to its subscribers through a bounded buffer.
+     * Initially requests `buffer` items and requests more only as it consumes
+     * them; submit() blocks while the downstream buffer is full.
+     */
+    private abstract class Stage<T, R> extends SubmissionPublisher<R> implements Flow.Processor<T, R> {
+
+        final StageMetrics metrics;
+        final int buffer;
+        private Subscription subscription;
+
+        Stage(String name, int buffer) {
+            super(executor, buffer);
+            this.metrics = new StageMetrics(name);
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(buffer);
+        }
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        // Stop consuming and pass the failure downstream.
+        void fail(Throwable throwable) {
+            subscription.cancel();
+            closeExceptionally(throwable);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            closeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            close();
+        }
+    }
+
+    // A stage that maps each item to one result.
+    private class MapStage<T, R> extends Stage<T, R> {
+
+        private final Function<T, R> function;
+
+        MapStage(String name, int buffer, Function<T, R> function) {
+            super(name, buffer);
+            this.function = function;
+        }
+
+        @Override
+        public void onNext(T item) {
+            try {
+                long start = System.nanoTime();
+                R result = function.apply(item);
+                metrics.record(1, start, System.nanoTime());
+                submit(result);
+                request(1);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+    }
+
+    // Collects tokenized lines into micro-batches and resolves the bridges of
+    // each batch with a single GraphPoet.bridges call.
+    //
+    // pending, pendingPairs and linger are guarded by the stage's monitor,
+    // which is only held briefly: a batch is taken from pending under the
+    // monitor, then resolved and submitted holding only the flushing lock,
+    // which keeps batches in order without blocking onError or the linger
+    // timer behind a full downstream buffer.
+    private class BridgeStage extends Stage<List<String>, String> {
+
+        private final GraphPoet poet;
+        private final int batchPairs;
+        private final long lingerNanos;
+        private final Object flushing = new Object();
+        private final List<List<String>> pending = new ArrayList<>();
+        private int pendingPairs = 0;
+        private ScheduledFuture<?> linger = null;
+        private boolean failed = false;
+
+        BridgeStage(GraphPoet poet, int buffer, int batchPairs, long lingerNanos) {
+            super("bridge", buffer);
+            this.poet = poet;
+            this.batchPairs = batchPairs;
+            this.lingerNanos = lingerNanos;
+        }
+
+        @Override
+        public void onNext(List<String> words) {
+            boolean full;
+            synchronized (this) {
+                if (failed) {
+                    return;
+                }
+                pending.add(words);
+                pendingPairs += Math.max(0, words.size() - 1);
+                full = pendingPairs >= batchPairs || pending.size() >= buffer;
+                if (!full && linger == null) {
+                    linger = timer.schedule(this::flush, lingerNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            if (full) {
+                flush();
+            }
+        }
+
+        // Resolve and submit the pending lines, if any. Runs on the upstream
+        // thread or the linger timer; a failure is passed downstream, since
+        // the timer would otherwise swallow it.
+        void flush() {
+            synchronized (flushing) {
+                List<List<String>> batch;
+                int pairCount;
+                synchronized (this) {
+                    cancelLinger();
+                    if (failed || pending.isEmpty()) {
+                        return;
+                    }
+                    batch = new ArrayList<>(pending);
+                    pairCount = pendingPairs;
+                    pending.clear();
+                    pendingPairs = 0;
+                }
+                try {
+                    long start = System.nanoTime();
+                    List<Map.Entry<String, String>> pairs = new ArrayList<>(pairCount);
+                    for (List<String> words : batch) {
+                        for (int i = 0; i + 1 < words.size(); i++) {
+                            pairs.add(new AbstractMap.SimpleImmutableEntry<>(words.get(i), words.get(i + 1)));
+                        }
+                    }
+                    List<List<Bridge>> bridges = poet.bridges(pairs, 1);
+                    List<String> poems = new ArrayList<>(batch.size());
+                    int from = 0;
+                    for (List<String> words : batch) {
+                        int to = from + Math.max(0, words.size() - 1);
+                        poems.add(GraphPoet.compose(words, bridges.subList(from, to)));
+                        from = to;
+                    }
+                    metrics.record(poems.size(), start, System.nanoTime());
+                    for (String poem : poems) {
+                        submit(poem);
+                    }
+                    request(batch.size());
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        // Requires the stage's monitor.
+        private void cancelLinger() {
+            if (linger != null) {
+                linger.cancel(false);
+                linger = null;
+            }
+        }
+
+        // Drop pending lines and accept no more.
+        private synchronized void discard() {
+            failed = true;
+            cancelLinger();
+            pending.clear();
+            pendingPairs = 0;
+        }
+
+        @Override
+        void fail(Throwable throwable) {
+            discard();
+            super.fail(throwable);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            discard();
+            super.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            flush();
+            super.onComplete();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PoemPipeline" + metrics().values();
+    }
+}
@@ -0,0 +1,94 @@
+package poet;
+
+/**
+ * Throughput and latency counters for one stage of a PoemPipeline. Safe for
+ * concurrent use.
+ */
+public class StageMetrics {
+    
+    private final String name;
+    private long items = 0;
+    private long batches = 0;
+    private long busyNanos = 0;
+    private long maxLatencyNanos = 0;
+    private long firstNanos = 0;
+    private long lastNanos = 0;
+    
+    // Abstraction function:
+    //   Represents the work done by stage `name`: `items` items in `batches`
+    //   batches, with busyNanos total processing time, the slowest batch
+    //   taking maxLatencyNanos, between System.nanoTime() values firstNanos
+    //   (start of the first batch) and lastNanos (end of the last batch).
+    // Representation invariant:
+    //   all counters nonnegative; batches <= items;
+    //   maxLatencyNanos <= busyNanos; firstNanos <= lastNanos if batches > 0
+    // Safety from rep exposure:
+    //   All fields are private and primitive or immutable.
+    
+    StageMetrics(String name) {
+        this.name = name;
+    }
+    
+    private void checkRep() {
+        assert batches <= items : "More batches than items";
+        assert maxLatencyNanos <= busyNanos : "Batch slower than total";
+    }
+    
+    /**
+     * Record one processed batch.
+     * 
+     * @param count number of items in the batch, positive
+     * @param startNanos System.nanoTime() when processing started
+     * @param endNanos System.nanoTime() when processing ended
+     */
+    synchronized void record(int count, long startNanos, long endNanos) {
+        if (batches == 0) {
+            firstNanos = startNanos;
+        }
+        items += count;
+        batches++;
+        busyNanos += endNanos - startNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, endNanos - startNanos);
+        lastNanos = endNanos;
+        checkRep();
+    }
+    
+    /** @return the name of the stage */
+    public String getName() {
+        return name;
+    }
+    
+    /** @return the number of items processed */
+    public synchronized long getItems() {
+        return items;
+    }
+    
+    /** @return the number of batches processed; equal to getItems() for unbatched stages */
+    public synchronized long getBatches() {
+        return batches;
+    }
+    
+    /** @return mean processing time per batch in nanoseconds, or 0 if none */
+    public synchronized double getMeanLatencyNanos() {
+        return batches == 0 ? 0 : (double) busyNanos / batches;
+    }
+    
+    /** @return the longest processing time of a batch in nanoseconds */
+    public synchronized long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+    
+    /**
+     * @return items processed per second of wall-clock time between the start
+     *         of the first batch and the end of the last, or 0 if none
+     */
+    public synchronized double getThroughput() {
+        return lastNanos == firstNanos ? 0 : items * 1e9 / (lastNanos - firstNanos);
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: %d items in %d batches, %.0f items/s, mean %.1f us, max %.1f us",
+                name, items, batches, getThroughput(), getMeanLatencyNanos() / 1e3, maxLatencyNanos / 1e3);
+    }
+}
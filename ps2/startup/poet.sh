@@ -0,0 +1,32 @@
+#!/bin/sh
+# Startup-optimized launch of poet.Main: a prebuilt graph image plus an
+# AppCDS archive of the classes loaded on the way to the first poem.
+# Requires JDK 13 or later; run from the ps2 directory after building into bin/.
+#
+#   startup/poet.sh build   # generate the jar, graph image and archive in startup/build
+#   startup/poet.sh run     # launch using them
+
+set -e
+OUT=startup/build
+JAR=$OUT/poet.jar
+CORPUS=src/poet/mugar-omni-theater.txt
+IMAGE=$OUT/mugar-omni-theater.graph
+ARCHIVE=$OUT/poet.jsa
+
+case "$1" in
+build)
+    mkdir -p "$OUT"
+    # AppCDS only archives classes loaded from jar files
+    jar cf "$JAR" -C bin .
+    java -cp "$JAR" poet.GraphImage "$CORPUS" "$IMAGE"
+    java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" poet.Main --image "$IMAGE"
+    ;;
+run)
+    exec java -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto -XX:TieredStopAtLevel=1 \
+        -cp "$JAR" poet.Main --image "$IMAGE"
+    ;;
+*)
+    echo "usage: $0 build|run" >&2
+    exit 2
+    ;;
+esac
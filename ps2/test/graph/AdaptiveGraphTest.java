@@ -0,0 +1,163 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import graph.AdaptiveGraph.Representation;
+
+/**
+ * Tests for AdaptiveGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against AdaptiveGraph, as
+ * well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class AdaptiveGraphTest extends GraphInstanceTest {
+    
+    @Override
+    public Graph<String> emptyInstance() {
+        return new AdaptiveGraph<>();
+    }
+    
+    // Testing strategy
+    //   migrations: COMPACT -> DENSE, COMPACT -> SPARSE, DENSE -> SPARSE by
+    //     vertex count and by density, SPARSE -> DENSE; none near thresholds
+    //   every representation: set, remove with incoming, outgoing and
+    //     self-loop edges, edgeCount(); contents unchanged by migration
+    //   thresholds: zero, invalid
+    
+    // compact up to 2 vertices and 8 edges, dense up to 8 vertices
+    private static AdaptiveGraph<Integer> small() {
+        return new AdaptiveGraph<>(2, 8, 0.25);
+    }
+    
+    // complete graph on vertices 0..n-1 with self-loops, weight of i -> j is 1 + i + j
+    private static void complete(Graph<Integer> graph, int n) {
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                graph.set(i, j, 1 + i + j);
+            }
+        }
+    }
+    
+    private static void assertComplete(Graph<Integer> graph, int n) {
+        assertEquals(n, graph.vertices().size());
+        for (int i = 0; i < n; i++) {
+            Map<Integer, Integer> targets = graph.targets(i);
+            Map<Integer, Integer> sources = graph.sources(i);
+            assertEquals(n, targets.size());
+            assertEquals(n, sources.size());
+            for (int j = 0; j < n; j++) {
+                assertEquals(Integer.valueOf(1 + i + j), targets.get(j));
+                assertEquals(Integer.valueOf(1 + i + j), sources.get(j));
+            }
+        }
+    }
+    
+    @Test
+    public void testStartsCompact() {
+        AdaptiveGraph<Integer> graph = small();
+        assertEquals(Representation.COMPACT, graph.representation());
+        graph.set(0, 1, 5);
+        graph.set(1, 0, 6);
+        assertEquals(Representation.COMPACT, graph.representation());
+        assertEquals(0, graph.migrations());
+        assertEquals(2, graph.edgeCount());
+    }
+    
+    @Test
+    public void testCompactToDense() {
+        AdaptiveGraph<Integer> graph = small();
+        complete(graph, 4);
+        assertEquals(Representation.DENSE, graph.representation());
+        assertEquals(1, graph.migrations());
+        assertEquals(16, graph.edgeCount());
+        assertComplete(graph, 4);
+    }
+    
+    @Test
+    public void testCompactToSparse() {
+        AdaptiveGraph<Integer> graph = small();
+        for (int i = 0; i < 20; i++) {
+            graph.add(i);
+        }
+        assertEquals(Representation.SPARSE, graph.representation());
+        assertEquals(20, graph.vertices().size());
+    }
+    
+    @Test
+    public void testDenseToSparseByVertices() {
+        AdaptiveGraph<Integer> graph = small();
+        complete(graph, 4);
+        complete(graph, 8);
+        assertEquals(Representation.DENSE, graph.representation());
+        complete(graph, 9);
+        assertEquals(Representation.SPARSE, graph.representation());
+        assertComplete(graph, 9);
+        assertEquals(81, graph.edgeCount());
+    }
+    
+    @Test
+    public void testDenseToSparseByDensity() {
+        AdaptiveGraph<Integer> graph = small();
+        complete(graph, 6);
+        assertEquals(Representation.DENSE, graph.representation());
+        int migrations = graph.migrations();
+        // density 1.0 -> just above 0.125: stays dense
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 6; j++) {
+                if (i * 6 + j > 4) {
+                    graph.set(i, j, 0);
+                }
+            }
+        }
+        assertEquals(Representation.DENSE, graph.representation());
+        assertEquals(migrations, graph.migrations());
+        graph.set(0, 4, 0);
+        assertEquals(4, graph.edgeCount());
+        assertEquals(Representation.SPARSE, graph.representation());
+        assertEquals(Map.of(0, 1, 1, 2, 2, 3, 3, 4), graph.targets(0));
+    }
+    
+    @Test
+    public void testSparseToDense() {
+        AdaptiveGraph<Integer> graph = small();
+        for (int i = 0; i < 4; i++) {
+            graph.add(i);
+        }
+        assertEquals(Representation.SPARSE, graph.representation());
+        complete(graph, 4);
+        assertEquals(Representation.DENSE, graph.representation());
+        assertComplete(graph, 4);
+    }
+    
+    @Test
+    public void testRemoveInEveryRepresentation() {
+        for (AdaptiveGraph<Integer> graph : List.of(
+                new AdaptiveGraph<Integer>(100, 0, 0),
+                new AdaptiveGraph<Integer>(0, 100, 0),
+                new AdaptiveGraph<Integer>(0, 0, 0))) {
+            complete(graph, 5);
+            Representation representation = graph.representation();
+            assertTrue(graph.remove(2));
+            assertFalse(graph.remove(2));
+            assertEquals(representation, graph.representation());
+            assertEquals(representation + " edges", 16, graph.edgeCount());
+            assertEquals(Set.of(0, 1, 3, 4), graph.vertices());
+            assertEquals(Map.of(0, 5, 1, 6, 3, 8, 4, 9), graph.targets(4));
+            assertEquals(Map.of(0, 5, 1, 6, 3, 8, 4, 9), graph.sources(4));
+            assertEquals(0, graph.set(2, 4, 0));
+            assertEquals(0, graph.set(4, 2, 0));
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThresholds() {
+        new AdaptiveGraph<String>(1, 1, -0.5);
+    }
+}
@@ -0,0 +1,129 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphMerge.
+ */
+public class GraphMergeTest {
+    
+    // Testing strategy
+    //   merge(): 0, 1, many inputs; disjoint and overlapping labels; edges
+    //     present in one or several inputs; isolated vertices; rows spanning
+    //     more than one parallel chunk; weight overflow
+    //   diff(): identical graphs, added, removed and changed edges, edges of
+    //     vertices present in only one graph; result order
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static Graph<String> graph(String... edges) {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        for (String edge : edges) {
+            String[] parts = edge.split(" ");
+            if (parts.length == 1) {
+                graph.add(parts[0]);
+            } else {
+                graph.set(parts[0], parts[1], Integer.parseInt(parts[2]));
+            }
+        }
+        return graph;
+    }
+    
+    private static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+        assertEquals(expected.vertices(), actual.vertices());
+        for (String vertex : expected.vertices()) {
+            assertEquals("targets of " + vertex, expected.targets(vertex), actual.targets(vertex));
+        }
+    }
+    
+    @Test
+    public void testMergeNone() {
+        WeightMatrix merged = GraphMerge.merge(Collections.emptyList());
+        assertEquals(0, merged.size());
+        assertEquals(0, merged.edgeCount());
+    }
+    
+    @Test
+    public void testMergeOne() {
+        Graph<String> graph = graph("a b 1", "b a 2", "c");
+        assertSameGraph(graph, GraphMerge.mergeGraphs(List.of(graph)).copyInto(new ConcreteEdgesGraph()));
+    }
+    
+    @Test
+    public void testMergeSumsWeights() {
+        Graph<String> merged = GraphMerge.mergeGraphs(List.of(
+                graph("a b 1", "a c 2", "x"),
+                graph("a b 3", "b a 1"),
+                graph("a a 4", "a c 5", "d e 6")))
+                .copyInto(new ConcreteEdgesGraph());
+        assertSameGraph(graph("a b 4", "a c 7", "a a 4", "b a 1", "d e 6", "x"), merged);
+    }
+    
+    @Test
+    public void testMergeManyChunks() {
+        int n = 3 * GraphMerge.CHUNK_ROWS + 7;
+        List<OffHeapGraph> graphs = new ArrayList<>();
+        // summed weights by source and target, and all labels, as plain maps
+        Map<String, Map<String, Integer>> expected = new HashMap<>();
+        Set<String> vertices = new HashSet<>();
+        Random random = new Random(5);
+        try {
+            for (int g = 0; g < 4; g++) {
+                OffHeapGraph graph = new OffHeapGraph();
+                graphs.add(graph);
+                for (int i = 0; i < 2 * n; i++) {
+                    String source = "v" + random.nextInt(n);
+                    String target = "v" + random.nextInt(n);
+                    int weight = 1 + random.nextInt(9);
+                    int previous = graph.set(source, target, weight);
+                    expected.computeIfAbsent(source, v -> new HashMap<>())
+                            .merge(target, weight - previous, Integer::sum);
+                    vertices.add(source);
+                    vertices.add(target);
+                }
+            }
+            WeightMatrix merged = GraphMerge.mergeGraphs(graphs);
+            assertEquals(vertices.size(), merged.size());
+            for (String vertex : vertices) {
+                assertEquals(expected.getOrDefault(vertex, Map.of()), merged.targets(vertex));
+            }
+        } finally {
+            for (OffHeapGraph graph : graphs) {
+                graph.close();
+            }
+        }
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testMergeOverflow() {
+        GraphMerge.mergeGraphs(List.of(graph("a b " + Integer.MAX_VALUE), graph("a b 1")));
+    }
+    
+    @Test
+    public void testDiffIdentical() {
+        assertEquals(List.of(), GraphMerge.diff(graph("a b 1", "c"), graph("a b 1")));
+    }
+    
+    @Test
+    public void testDiff() {
+        List<EdgeChange> changes = GraphMerge.diff(
+                graph("a b 1", "a c 2", "b a 3", "x y 4"),
+                graph("a b 1", "a c 5", "a d 6", "z a 7"));
+        assertEquals(List.of(
+                new EdgeChange("a", "c", 2, 5),
+                new EdgeChange("a", "d", 0, 6),
+                new EdgeChange("b", "a", 3, 0),
+                new EdgeChange("x", "y", 4, 0),
+                new EdgeChange("z", "a", 0, 7)), changes);
+        assertEquals(EdgeChange.Kind.CHANGED, changes.get(0).getKind());
+        assertEquals(EdgeChange.Kind.ADDED, changes.get(1).getKind());
+        assertEquals(EdgeChange.Kind.REMOVED, changes.get(2).getKind());
+    }
+}
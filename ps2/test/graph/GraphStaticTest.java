@@ -6,6 +6,10 @@ package graph;
 import static org.junit.Assert.*;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -21,6 +25,9 @@ public class GraphStaticTest {
     //   empty()
     //     no inputs, only output is empty graph
     //     observe with vertices()
+    //     graphs are independent of each other
+    //   label types: String, Integer, a user-defined immutable type, with
+    //     add(), set(), remove(), sources(), targets()
     
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
@@ -33,6 +40,77 @@ public class GraphStaticTest {
                 Collections.emptySet(), Graph.empty().vertices());
     }
     
-    // TODO test other vertex label types in Problem 3.2
+    @Test
+    public void testEmptyGraphsIndependent() {
+        Graph<String> first = Graph.empty();
+        Graph<String> second = Graph.empty();
+        first.add("a");
+        assertEquals(Set.of("a"), first.vertices());
+        assertEquals(Collections.emptySet(), second.vertices());
+    }
+    
+    @Test
+    public void testIntegerLabels() {
+        Graph<Integer> graph = Graph.empty();
+        assertTrue(graph.add(1));
+        assertFalse(graph.add(1));
+        assertEquals(0, graph.set(1, 2, 5));
+        assertEquals(5, graph.set(1, 2, 7));
+        graph.set(3, 1, 2);
+        assertEquals(Set.of(1, 2, 3), graph.vertices());
+        assertEquals(Map.of(2, 7), graph.targets(1));
+        assertEquals(Map.of(3, 2), graph.sources(1));
+        assertTrue(graph.remove(1));
+        assertEquals(Collections.emptyMap(), graph.targets(3));
+    }
+    
+    @Test
+    public void testListLabels() {
+        Graph<List<String>> graph = Graph.empty();
+        graph.set(List.of("a", "b"), List.of("c"), 3);
+        assertEquals(Map.of(List.of("c"), 3), graph.targets(List.of("a", "b")));
+        assertEquals(Map.of(List.of("a", "b"), 3), graph.sources(List.of("c")));
+    }
+    
+    @Test
+    public void testUserDefinedLabels() {
+        Graph<Point> graph = Graph.empty();
+        // enough vertices and edges to leave the initial representation
+        for (int x = 0; x < 40; x++) {
+            graph.set(new Point(x, 0), new Point(x + 1, 0), x + 1);
+        }
+        assertEquals(41, graph.vertices().size());
+        assertEquals(Map.of(new Point(11, 0), 11), graph.targets(new Point(10, 0)));
+        assertEquals(Map.of(new Point(9, 0), 10), graph.sources(new Point(10, 0)));
+        assertTrue(graph.remove(new Point(10, 0)));
+        assertEquals(Collections.emptyMap(), graph.targets(new Point(9, 0)));
+    }
     
+    // An immutable label type compared with equals().
+    private static class Point {
+        private final int x;
+        private final int y;
+        
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Point)) return false;
+            Point that = (Point) obj;
+            return x == that.x && y == that.y;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(x, y);
+        }
+        
+        @Override
+        public String toString() {
+            return "(" + x + ", " + y + ")";
+        }
+    }
 }
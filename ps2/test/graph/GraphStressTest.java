@@ -0,0 +1,281 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Differential stress tests: long randomized sequences of Graph operations,
+ * run against every Graph implementation in lock step with a simple
+ * reference model, comparing every result.
+ *
+ * <p>Labels are drawn from a Zipf distribution, so a few vertices get most of
+ * the edges as in real affinity graphs. The run is configured with system
+ * properties:
+ * <ul>
+ * <li>graph.stress.ops: operations per implementation (default 20000)
+ * <li>graph.stress.labels: number of distinct labels (default 256)
+ * <li>graph.stress.zipf: Zipf exponent of the label distribution (default 1.0)
+ * <li>graph.stress.seed: random seed (default 6005)
+ * <li>graph.stress.only: comma-separated names of the implementations to run,
+ *     as printed in the results, e.g. "OffHeapGraph,AdaptiveGraph"
+ *     (default: all)
+ * </ul>
+ * Each test prints the throughput of its implementation, measured over its
+ * own calls only. On a mismatch the failure message gives the seed and step
+ * needed to reproduce it, and the operations leading up to it.
+ *
+ * <p>The defaults keep the suite fast. For a soak run, raise the operation
+ * count and leave out the implementations whose operations take time linear
+ * in the graph size, for example:
+ * <pre>
+ * java -ea -Dgraph.stress.ops=5000000 -Dgraph.stress.labels=4096 \
+ *     -Dgraph.stress.only=OffHeapGraph,StatisticsGraph,PartitionedGraph,AdaptiveGraph \
+ *     org.junit.runner.JUnitCore graph.GraphStressTest
+ * </pre>
+ */
+public class GraphStressTest {
+
+    // Testing strategy
+    //   implementations: every Graph implementation, including decorators
+    //     and partitioned graphs
+    //   operations: add, set (new, changed, and zero weight), remove,
+    //     vertices, sources, targets, with labels both present and absent,
+    //     and self-loops
+    //   state: compared in full every CHECK_EVERY operations and at the end
+
+    private static final int OPS = Integer.getInteger("graph.stress.ops", 20_000);
+    private static final int LABELS = Integer.getInteger("graph.stress.labels", 256);
+    private static final double ZIPF = Double.parseDouble(System.getProperty("graph.stress.zipf", "1.0"));
+    private static final long SEED = Long.getLong("graph.stress.seed", 6005);
+    private static final String ONLY = System.getProperty("graph.stress.only", "");
+
+    private static final int CHECK_EVERY = 1_000;
+    private static final int TRACE = 8;
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testConcreteEdgesGraph() {
+        stress("ConcreteEdgesGraph", ConcreteEdgesGraph::new);
+    }
+
+    @Test
+    public void testConcreteVerticesGraph() {
+        stress("ConcreteVerticesGraph", ConcreteVerticesGraph::new);
+    }
+
+    @Test
+    public void testOffHeapGraph() {
+        try (OffHeapGraph graph = new OffHeapGraph()) {
+            stress("OffHeapGraph", () -> graph);
+        }
+    }
+
+    @Test
+    public void testStatisticsGraph() {
+        try (OffHeapGraph graph = new OffHeapGraph()) {
+            stress("StatisticsGraph", () -> new StatisticsGraph<>(graph));
+        }
+    }
+
+    @Test
+    public void testPartitionedGraph() {
+        try (InProcessTransport transport = new InProcessTransport(4, OffHeapGraph::new)) {
+            stress("PartitionedGraph", () -> new PartitionedGraph(transport));
+        }
+    }
+
+    @Test
+    public void testAdaptiveGraph() {
+        stress("AdaptiveGraph", AdaptiveGraph::new);
+    }
+
+    @Test
+    public void testAdaptiveGraphMigrating() {
+        // thresholds the run crosses, so that it migrates under load
+        AdaptiveGraph<String> graph = new AdaptiveGraph<>(4, 1024, 0.02);
+        if (stress("AdaptiveGraph migrating", () -> graph)) {
+            System.out.println("  " + graph.migrations() + " migrations, now " + graph);
+            assertTrue("expected migrations", graph.migrations() >= 2);
+        }
+    }
+
+    /*
+     * Run OPS random operations against a new graph from factory and a
+     * reference model, failing at the first result that differs. Returns
+     * false, without running, if graph.stress.only leaves out name.
+     */
+    private static boolean stress(String name, Supplier<? extends Graph<String>> factory) {
+        if (!ONLY.isEmpty() && !Arrays.asList(ONLY.split(",")).contains(name)) {
+            return false;
+        }
+        Graph<String> graph = factory.get();
+        Graph<String> model = new ModelGraph();
+        Random random = new Random(SEED);
+        Zipf labels = new Zipf(LABELS, ZIPF);
+        Deque<String> trace = new ArrayDeque<>();
+        long nanos = 0;
+        for (int step = 0; step < OPS; step++) {
+            String source = "v" + labels.next(random);
+            String target = "v" + labels.next(random);
+            int choice = random.nextInt(100);
+            String op;
+            Object expected;
+            Object actual;
+            long start;
+            if (choice < 10) {
+                op = "add(" + source + ")";
+                expected = model.add(source);
+                start = System.nanoTime();
+                actual = graph.add(source);
+            } else if (choice < 45) {
+                int weight = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(10);
+                op = "set(" + source + ", " + target + ", " + weight + ")";
+                expected = model.set(source, target, weight);
+                start = System.nanoTime();
+                actual = graph.set(source, target, weight);
+            } else if (choice < 48) {
+                op = "remove(" + source + ")";
+                expected = model.remove(source);
+                start = System.nanoTime();
+                actual = graph.remove(source);
+            } else if (choice < 50) {
+                op = "vertices()";
+                expected = model.vertices();
+                start = System.nanoTime();
+                actual = graph.vertices();
+            } else if (choice < 75) {
+                op = "sources(" + target + ")";
+                expected = model.sources(target);
+                start = System.nanoTime();
+                actual = graph.sources(target);
+            } else {
+                op = "targets(" + source + ")";
+                expected = model.targets(source);
+                start = System.nanoTime();
+                actual = graph.targets(source);
+            }
+            nanos += System.nanoTime() - start;
+
+            trace.addLast(op);
+            if (trace.size() > TRACE) {
+                trace.removeFirst();
+            }
+            if (!expected.equals(actual)) {
+                fail(name + " diverged at step " + step + " (seed " + SEED + "): " + op
+                        + " expected " + expected + " but was " + actual + "; last operations " + trace);
+            }
+            if (step % CHECK_EVERY == CHECK_EVERY - 1 || step == OPS - 1) {
+                assertSameState(name + " at step " + step + " (seed " + SEED + ")", model, graph);
+            }
+        }
+        System.out.printf("%-22s %,d ops in %,d ms: %,.0f ops/s%n", name, OPS, nanos / 1_000_000,
+                OPS / (nanos / 1e9));
+        return true;
+    }
+
+    private static void assertSameState(String context, Graph<String> expected, Graph<String> actual) {
+        assertEquals(context + ": vertices", expected.vertices(), actual.vertices());
+        for (String vertex : expected.vertices()) {
+            assertEquals(context + ": targets of " + vertex, expected.targets(vertex), actual.targets(vertex));
+            assertEquals(context + ": sources of " + vertex, expected.sources(vertex), actual.sources(vertex));
+        }
+    }
+
+    // Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^s.
+    private static class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double s) {
+            cumulative = new double[n];
+            double total = 0;
+            for (int rank = 0; rank < n; rank++) {
+                total += 1 / Math.pow(rank + 1, s);
+                cumulative[rank] = total;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= total;
+            }
+        }
+
+        int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+
+    /*
+     * The reference model: the Graph spec transcribed as directly as possible
+     * onto maps of outgoing and incoming edges.
+     */
+    private static class ModelGraph implements Graph<String> {
+
+        private final Map<String, Map<String, Integer>> out = new HashMap<>();
+        private final Map<String, Map<String, Integer>> in = new HashMap<>();
+
+        @Override
+        public boolean add(String vertex) {
+            if (out.containsKey(vertex)) {
+                return false;
+            }
+            out.put(vertex, new HashMap<>());
+            in.put(vertex, new HashMap<>());
+            return true;
+        }
+
+        @Override
+        public int set(String source, String target, int weight) {
+            if (weight != 0) {
+                add(source);
+                add(target);
+            } else if (!out.containsKey(source) || !out.containsKey(target)) {
+                return 0;
+            }
+            Integer previous = weight == 0 ? out.get(source).remove(target) : out.get(source).put(target, weight);
+            if (weight == 0) {
+                in.get(target).remove(source);
+            } else {
+                in.get(target).put(source, weight);
+            }
+            return previous == null ? 0 : previous;
+        }
+
+        @Override
+        public boolean remove(String vertex) {
+            if (!out.containsKey(vertex)) {
+                return false;
+            }
+            for (String target : out.remove(vertex).keySet()) {
+                in.get(target).remove(vertex);
+            }
+            for (String source : in.remove(vertex).keySet()) {
+                if (!source.equals(vertex)) {
+                    out.get(source).remove(vertex);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Set<String> vertices() {
+            return new HashSet<>(out.keySet());
+        }
+
+        @Override
+        public Map<String, Integer> sources(String target) {
+            return new HashMap<>(in.getOrDefault(target, Collections.emptyMap()));
+        }
+
+        @Override
+        public Map<String, Integer> targets(String source) {
+            return new HashMap<>(out.getOrDefault(source, Collections.emptyMap()));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for OffHeapGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against OffHeapGraph, as
+ * well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class OffHeapGraphTest extends GraphInstanceTest {
+    
+    @Override
+    public Graph<String> emptyInstance() {
+        return new OffHeapGraph();
+    }
+    
+    // Testing strategy
+    //   edgeCount(): empty, after adding, updating, and removing edges
+    //   reuse of slots after remove() and set(..., 0)
+    //   close(): once, twice, use after close
+    //   storage spanning many segments
+    //   stores: buffers and foreign (when available) hold the same ints while
+    //     growing within the first segment and by whole segments; with
+    //     -Dgraph.offheap=foreign (as build.sh runs the tests) the foreign
+    //     store must be available
+    //   hub vertex with a very large out-degree
+    
+    @Test
+    public void testEdgeCountTracksSetAndRemove() {
+        try (OffHeapGraph graph = new OffHeapGraph()) {
+            assertEquals(0, graph.edgeCount());
+            graph.set("A", "B", 1);
+            graph.set("B", "C", 2);
+            graph.set("A", "B", 3);
+            assertEquals(2, graph.edgeCount());
+            graph.set("B", "C", 0);
+            assertEquals(1, graph.edgeCount());
+            graph.remove("A");
+            assertEquals(0, graph.edgeCount());
+        }
+    }
+    
+    @Test
+    public void testSlotsReusedAfterRemove() {
+        try (OffHeapGraph graph = new OffHeapGraph()) {
+            for (int i = 0; i < 100; i++) {
+                graph.set("v" + i, "v" + (i + 1), i + 1);
+            }
+            graph.remove("v50");
+            graph.set("x", "v49", 7);
+            graph.set("v51", "x", 8);
+            assertEquals(100, graph.edgeCount());
+            assertFalse(graph.vertices().contains("v50"));
+            assertEquals(Integer.valueOf(7), graph.sources("v49").get("x"));
+            assertEquals(Integer.valueOf(8), graph.targets("v51").get("x"));
+            assertEquals(Integer.valueOf(49), graph.sources("v49").get("v48"));
+        }
+    }
+    
+    @Test
+    public void testManySegments() {
+        // 16-int segments: every few edges cross a segment boundary
+        try (OffHeapGraph graph = new OffHeapGraph(16)) {
+            for (int i = 0; i < 2000; i++) {
+                graph.set("v" + i, "v" + (i * 7 % 2000), i + 1);
+            }
+            for (int i = 0; i < 2000; i += 2) {
+                graph.set("v" + i, "v" + (i * 7 % 2000), 0);
+            }
+            assertEquals(1000, graph.edgeCount());
+            assertEquals(2000, graph.vertices().size());
+            assertEquals(Map.of("v" + (999 * 7 % 2000), 1000), graph.targets("v999"));
+            assertEquals(Map.of(), graph.targets("v998"));
+        }
+    }
+    
+    @Test
+    public void testStoresAgree() {
+        OffHeapInts<?> foreign = OffHeapInts.foreign(16, 1);
+        if ("foreign".equals(System.getProperty("graph.offheap"))) {
+            assertNotNull("graph.offheap=foreign, but the foreign folder was not compiled"
+                    + " or jdk.incubator.foreign is not in the module graph", foreign);
+        }
+        OffHeapInts<?>[] stores = { OffHeapInts.buffers(16, 1), foreign };
+        int[] expected = new int[1000];
+        Random random = new Random(26);
+        // write each int once, just after growing, so growth must keep it
+        int filled = 0;
+        for (int length = 1; length <= expected.length; length += 1 + length / 3) {
+            for (OffHeapInts<?> store : stores) {
+                if (store != null) {
+                    store.ensure(length);
+                }
+            }
+            for (; filled < length; filled++) {
+                expected[filled] = random.nextInt();
+                for (OffHeapInts<?> store : stores) {
+                    if (store != null) {
+                        store.put(filled, expected[filled]);
+                    }
+                }
+            }
+        }
+        for (OffHeapInts<?> store : stores) {
+            if (store != null) {
+                for (int i = 0; i < filled; i++) {
+                    assertEquals(store.toString(), expected[i], store.get(i));
+                }
+                store.free();
+            }
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testSegmentSizeNotPowerOfTwo() {
+        new OffHeapGraph(1000);
+    }
+    
+    @Test(timeout = 20_000)
+    public void testHubVertex() {
+        // a linear scan per set() would make this quadratic in the degree
+        int degree = 200_000;
+        try (OffHeapGraph graph = new OffHeapGraph()) {
+            for (int i = 0; i < degree; i++) {
+                graph.set("hub", "w" + i, 1);
+                graph.set("w" + i, "hub", 2);
+            }
+            for (int i = 0; i < degree; i++) {
+                assertEquals(1, graph.set("hub", "w" + i, 3));
+            }
+            assertEquals(2 * degree, graph.edgeCount());
+            assertEquals(degree, graph.targets("hub").size());
+            assertTrue(graph.remove("hub"));
+            assertEquals(0, graph.edgeCount());
+        }
+    }
+    
+    @Test
+    public void testCloseTwice() {
+        OffHeapGraph graph = new OffHeapGraph();
+        graph.add("A");
+        graph.close();
+        graph.close();
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testUseAfterClose() {
+        OffHeapGraph graph = new OffHeapGraph();
+        graph.close();
+        graph.targets("A");
+    }
+}
@@ -0,0 +1,293 @@
+package graph;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for PartitionedGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against PartitionedGraph over
+ * in-process shards, as well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class PartitionedGraphTest extends GraphInstanceTest {
+    
+    // transports opened by this test, closed after it
+    private final List<ShardTransport> transports = new ArrayList<>();
+    
+    @Override
+    public Graph<String> emptyInstance() {
+        InProcessTransport transport = new InProcessTransport(3, ConcreteEdgesGraph::new);
+        transports.add(transport);
+        return new PartitionedGraph(transport);
+    }
+    
+    @After
+    public void closeTransports() throws IOException {
+        for (ShardTransport transport : transports) {
+            transport.close();
+        }
+    }
+    
+    // Testing strategy
+    //   shardOf(): result in range, stable for equal labels
+    //   edges within one shard, edges across shards
+    //   remove() of a vertex with incoming edges from other shards
+    //   sources(Collection), targets(Collection): empty, repeated labels,
+    //     labels on several shards, absent labels
+    //   set(): round trips for a new and an existing edge, within one shard
+    //     and across shards, and for removing an edge
+    //   transport: in-process, loopback sockets; concurrent calls; closed
+    //     transport, request with a class outside the allow-list, shard
+    //     throwing while applying a batch
+    
+    private static final String[] LABELS = { "a", "b", "c", "d", "e", "f", "g", "h" };
+    
+    private static void fill(Graph<String> graph) {
+        for (int i = 0; i < LABELS.length; i++) {
+            for (int j = 0; j < LABELS.length; j++) {
+                if (i != j && (i + j) % 3 == 0) {
+                    graph.set(LABELS[i], LABELS[j], 10 * i + j);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testShardOfInRange() {
+        for (String label : LABELS) {
+            int shard = PartitionedGraph.shardOf(label, 3);
+            assertTrue(shard >= 0 && shard < 3);
+            assertEquals(shard, PartitionedGraph.shardOf(new String(label), 3));
+        }
+        assertEquals(0, PartitionedGraph.shardOf("anything", 1));
+    }
+    
+    @Test
+    public void testCrossShardEdgesMatchSingleGraph() {
+        try (OffHeapGraph expected = new OffHeapGraph()) {
+            Graph<String> graph = emptyInstance();
+            fill(expected);
+            fill(graph);
+            assertEquals(expected.vertices(), graph.vertices());
+            for (String label : LABELS) {
+                assertEquals(expected.targets(label), graph.targets(label));
+                assertEquals(expected.sources(label), graph.sources(label));
+            }
+        }
+    }
+    
+    @Test
+    public void testRemoveDropsEdgesFromOtherShards() {
+        Graph<String> graph = emptyInstance();
+        fill(graph);
+        assertTrue(graph.remove("c"));
+        assertFalse(graph.remove("c"));
+        assertFalse(graph.vertices().contains("c"));
+        for (String label : LABELS) {
+            assertFalse(graph.targets(label).containsKey("c"));
+        }
+        assertEquals(0, graph.sources("c").size());
+    }
+    
+    @Test
+    public void testBatchQueries() {
+        PartitionedGraph graph = (PartitionedGraph) emptyInstance();
+        fill(graph);
+        Map<String, Map<String, Integer>> targets = graph.targets(Arrays.asList("a", "b", "a", "zz"));
+        assertEquals(Set.of("a", "b", "zz"), targets.keySet());
+        assertEquals(graph.targets("a"), targets.get("a"));
+        assertEquals(new HashMap<>(), targets.get("zz"));
+        Map<String, Map<String, Integer>> sources = graph.sources(Arrays.asList("c", "d", "zz"));
+        assertEquals(Set.of("c", "d", "zz"), sources.keySet());
+        assertEquals(graph.sources("d"), sources.get("d"));
+        assertTrue(graph.sources(Arrays.<String>asList()).isEmpty());
+    }
+    
+    @Test
+    public void testLoopbackSockets() throws IOException {
+        try (SocketTransport transport = SocketTransport.loopback(2, OffHeapGraph::new)) {
+            Graph<String> graph = new PartitionedGraph(transport);
+            Graph<String> expected = new ConcreteEdgesGraph();
+            fill(graph);
+            fill(expected);
+            assertEquals(expected.vertices(), graph.vertices());
+            assertEquals(expected.sources("f"), graph.sources("f"));
+            assertEquals(expected.targets("b"), graph.targets("b"));
+            assertEquals(expected.set("b", "d", 1), graph.set("b", "d", 1));
+            assertTrue(graph.remove("b"));
+            assertFalse(graph.vertices().contains("b"));
+        }
+    }
+    
+    @Test
+    public void testLoopbackConcurrentCalls() throws Exception {
+        try (SocketTransport transport = SocketTransport.loopback(3, OffHeapGraph::new)) {
+            Graph<String> graph = new PartitionedGraph(transport);
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String prefix = "t" + t + "_";
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        graph.set(prefix + i, prefix + (i + 1), i + 1);
+                    }
+                });
+                thread.setUncaughtExceptionHandler((th, e) -> {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(Arrays.asList(), failures);
+            assertEquals(4 * 201, graph.vertices().size());
+            assertEquals(Map.of("t2_8", 9), graph.sources("t2_9"));
+        }
+    }
+    
+    @Test
+    public void testLoopbackClosed() throws IOException {
+        SocketTransport transport = SocketTransport.loopback(2, OffHeapGraph::new);
+        Graph<String> graph = new PartitionedGraph(transport);
+        fill(graph);
+        transport.close();
+        transport.close();
+        try {
+            graph.vertices();
+            fail("expected UncheckedIOException");
+        } catch (UncheckedIOException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testServerRejectsUnlistedClasses() throws IOException, ClassNotFoundException {
+        ShardServer server = new ShardServer(0, 1, new ConcreteEdgesGraph());
+        try (ServerSocket listener = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> server.serve(listener));
+            acceptor.setDaemon(true);
+            acceptor.start();
+            try (Socket socket = new Socket(listener.getInetAddress(), listener.getLocalPort());
+                    ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream())) {
+                out.writeObject(new ArrayList<>(Arrays.asList(new Date())));
+                out.flush();
+                InputStream in = socket.getInputStream();
+                ObjectInputStream responses = new ObjectInputStream(in);
+                assertTrue(responses.readObject() instanceof IOException);
+                assertEquals("connection dropped", -1, in.read());
+            }
+        }
+        assertEquals(Arrays.asList(true), server.apply(Arrays.asList(ShardOp.add("a"))));
+    }
+    
+    // Transport that counts the round trips made through it.
+    private static class CountingTransport implements ShardTransport {
+        private final ShardTransport transport;
+        int calls = 0;
+        
+        CountingTransport(ShardTransport transport) {
+            this.transport = transport;
+        }
+        @Override public int shardCount() {
+            return transport.shardCount();
+        }
+        @Override public List<Object> call(int shard, List<ShardOp> ops) throws IOException {
+            calls++;
+            return transport.call(shard, ops);
+        }
+        @Override public void close() throws IOException {
+            transport.close();
+        }
+    }
+    
+    @Test
+    public void testSetRoundTrips() throws IOException {
+        try (CountingTransport transport = new CountingTransport(new InProcessTransport(2, ConcreteEdgesGraph::new))) {
+            Graph<String> graph = new PartitionedGraph(transport);
+            String source = "a";
+            String near = null;
+            String far = null;
+            for (String label : LABELS) {
+                if (label.equals(source)) {
+                    continue;
+                }
+                if (PartitionedGraph.shardOf(label, 2) == PartitionedGraph.shardOf(source, 2)) {
+                    near = label;
+                } else {
+                    far = label;
+                }
+            }
+            assertNotNull(near);
+            assertNotNull(far);
+            
+            assertEquals(0, graph.set(source, far, 1));
+            assertEquals("new edge across shards", 2, transport.calls);
+            assertEquals(1, graph.set(source, far, 2));
+            assertEquals("existing edge across shards", 3, transport.calls);
+            assertEquals(0, graph.set(source, near, 1));
+            assertEquals("new edge within a shard", 4, transport.calls);
+            assertEquals(2, graph.set(source, far, 0));
+            assertEquals("removed edge", 5, transport.calls);
+            assertEquals(Set.of(source, near, far), graph.vertices());
+        }
+    }
+    
+    @Test
+    public void testShardFailureKeepsConnection() throws IOException {
+        ShardServer server = new ShardServer(0, 1, new ConcreteEdgesGraph() {
+            @Override public boolean add(String vertex) {
+                if (vertex.equals("bad")) {
+                    throw new IllegalArgumentException("bad label");
+                }
+                return super.add(vertex);
+            }
+        });
+        try (ServerSocket listener = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> server.serve(listener));
+            acceptor.setDaemon(true);
+            acceptor.start();
+            try (SocketTransport transport = new SocketTransport(Arrays.asList(
+                    new InetSocketAddress(listener.getInetAddress(), listener.getLocalPort())))) {
+                try {
+                    transport.call(0, Arrays.asList(ShardOp.add("a"), ShardOp.add("bad"), ShardOp.add("c")));
+                    fail("expected IllegalArgumentException");
+                } catch (IllegalArgumentException e) {
+                    assertEquals("bad label", e.getMessage());
+                }
+                assertEquals(Arrays.asList(Set.of("a")), transport.call(0, Arrays.asList(ShardOp.vertices())));
+                
+                server.close();
+                try {
+                    transport.call(0, Arrays.asList(ShardOp.vertices()));
+                    fail("expected IllegalStateException");
+                } catch (IllegalStateException e) {
+                    // expected
+                }
+            }
+        }
+    }
+}
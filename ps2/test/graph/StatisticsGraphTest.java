@@ -0,0 +1,182 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for StatisticsGraph and GraphStatistics.
+ * 
+ * This class runs the GraphInstanceTest tests against StatisticsGraph, as
+ * well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class StatisticsGraphTest extends GraphInstanceTest {
+    
+    @Override
+    public Graph<String> emptyInstance() {
+        return new StatisticsGraph<>(new ConcreteEdgesGraph());
+    }
+    
+    // Testing strategy
+    //   degrees: absent vertex, isolated vertex, after set() adding, updating,
+    //     and removing edges, after remove() of a vertex with in/out edges
+    //     and a self-loop
+    //   histograms: empty graph, degrees 0, 1, several in one bucket
+    //   heaviestVertices/heaviestEdges: fewer tracked than k, more than
+    //     capacity, after decrements, untracked edge reweighted, many edges
+    //     with growing weights
+    //   every mutation: statistics agree with the wrapped graph (checkRep
+    //     only checks what is O(1), so the full comparison lives here)
+    //   bucket(): 0, 1, powers of two and their neighbours
+    
+    @Test
+    public void testBucket() {
+        assertEquals(0, GraphStatistics.bucket(0));
+        assertEquals(1, GraphStatistics.bucket(1));
+        assertEquals(2, GraphStatistics.bucket(2));
+        assertEquals(2, GraphStatistics.bucket(3));
+        assertEquals(3, GraphStatistics.bucket(4));
+        assertEquals(31, GraphStatistics.bucket(Integer.MAX_VALUE));
+    }
+    
+    // Assert that graph.statistics() describes graph's vertices and edges.
+    private static void assertMatchesGraph(StatisticsGraph<String> graph) {
+        GraphStatistics<String> stats = graph.statistics();
+        assertEquals(graph.vertices().size(), stats.vertexCount());
+        long edges = 0;
+        for (String vertex : graph.vertices()) {
+            assertEquals(graph.sources(vertex).size(), stats.inDegree(vertex));
+            assertEquals(graph.targets(vertex).size(), stats.outDegree(vertex));
+            edges += graph.targets(vertex).size();
+        }
+        assertEquals(edges, stats.edgeCount());
+    }
+    
+    @Test
+    public void testDegreesTrackSetAndRemove() {
+        StatisticsGraph<String> graph = new StatisticsGraph<>(new ConcreteEdgesGraph());
+        GraphStatistics<String> stats = graph.statistics();
+        graph.add("lonely");
+        graph.set("the", "cat", 3);
+        graph.set("the", "dog", 1);
+        graph.set("a", "dog", 2);
+        graph.set("the", "cat", 5);
+        assertEquals(5, stats.vertexCount());
+        assertEquals(3, stats.edgeCount());
+        assertEquals(2, stats.outDegree("the"));
+        assertEquals(2, stats.inDegree("dog"));
+        assertEquals(0, stats.degree("lonely"));
+        assertEquals(0, stats.degree("absent"));
+        assertMatchesGraph(graph);
+        
+        graph.set("the", "dog", 0);
+        assertEquals(1, stats.outDegree("the"));
+        assertEquals(1, stats.inDegree("dog"));
+        assertMatchesGraph(graph);
+        
+        graph.set("the", "the", 1);
+        assertMatchesGraph(graph);
+        assertTrue(graph.remove("the"));
+        assertEquals(0, stats.degree("the"));
+        assertEquals(0, stats.inDegree("cat"));
+        assertEquals(1, stats.edgeCount());
+        assertEquals(4, stats.vertexCount());
+        assertMatchesGraph(graph);
+    }
+    
+    @Test
+    public void testHistograms() {
+        StatisticsGraph<String> graph = new StatisticsGraph<>(new ConcreteEdgesGraph());
+        assertArrayEquals(new long[GraphStatistics.BUCKETS], graph.statistics().outDegreeHistogram());
+        graph.set("hub", "a", 1);
+        graph.set("hub", "b", 1);
+        graph.set("hub", "c", 1);
+        graph.set("a", "b", 1);
+        long[] out = graph.statistics().outDegreeHistogram();
+        long[] in = graph.statistics().inDegreeHistogram();
+        assertEquals(2, out[0]); // b, c
+        assertEquals(1, out[1]); // a
+        assertEquals(1, out[2]); // hub: 3
+        assertEquals(1, in[0]);  // hub
+        assertEquals(2, in[1]);  // a, c
+        assertEquals(1, in[2]);  // b: 2
+    }
+    
+    @Test
+    public void testHeaviestVerticesAndEdges() {
+        StatisticsGraph<String> graph = new StatisticsGraph<>(new ConcreteEdgesGraph(), 4);
+        for (String word : Arrays.asList("cat", "dog", "sun", "sea", "sky", "car")) {
+            graph.set("the", word, 1);
+            graph.set("of", word, 1);
+        }
+        graph.set("of", "the", 9);
+        graph.set("of", "the", 7);
+        graph.set("sky", "of", 1);
+        Map<String, Long> vertices = graph.statistics().heaviestVertices(2);
+        assertEquals(Arrays.asList("of", "the"), Arrays.asList(vertices.keySet().toArray()));
+        Long heaviest = graph.statistics().heaviestEdges(1)
+                .get(new AbstractMap.SimpleImmutableEntry<>("of", "the"));
+        assertEquals(Long.valueOf(7), heaviest);
+        assertEquals(4, graph.statistics().heaviestVertices(10).size());
+        assertEquals(0, graph.statistics().heaviestEdges(0).size());
+    }
+    
+    @Test
+    public void testUntrackedEdgeReweighted() {
+        StatisticsGraph<String> graph = new StatisticsGraph<>(new ConcreteEdgesGraph(), 2);
+        graph.set("a", "b", 500);
+        graph.set("a", "c", 600);
+        graph.set("x", "y", 1000);
+        graph.set("x", "y", 1001);
+        Map<Map.Entry<String, String>, Long> edges = graph.statistics().heaviestEdges(2);
+        assertEquals(Arrays.asList(new AbstractMap.SimpleImmutableEntry<>("x", "y"),
+                                   new AbstractMap.SimpleImmutableEntry<>("a", "c")),
+                     new ArrayList<>(edges.keySet()));
+        assertEquals(Long.valueOf(1001), edges.get(new AbstractMap.SimpleImmutableEntry<>("x", "y")));
+        assertEquals(Long.valueOf(600), edges.get(new AbstractMap.SimpleImmutableEntry<>("a", "c")));
+    }
+    
+    @Test
+    public void testHeaviestEdgesExactWhileWeightsGrow() {
+        final int capacity = 8;
+        StatisticsGraph<String> graph = new StatisticsGraph<>(new ConcreteEdgesGraph(), capacity);
+        Map<Map.Entry<String, String>, Integer> weights = new HashMap<>();
+        Random random = new Random(29);
+        for (int i = 0; i < 2000; i++) {
+            String source = "v" + random.nextInt(20);
+            String target = "v" + random.nextInt(20);
+            int weight = weights.getOrDefault(new AbstractMap.SimpleImmutableEntry<>(source, target), 0)
+                    + 1 + random.nextInt(5);
+            graph.set(source, target, weight);
+            weights.put(new AbstractMap.SimpleImmutableEntry<>(source, target), weight);
+        }
+        assertMatchesGraph(graph);
+        List<Integer> expected = new ArrayList<>(weights.values());
+        expected.sort((a, b) -> b - a);
+        List<Long> actual = new ArrayList<>();
+        for (Map.Entry<Map.Entry<String, String>, Long> edge : graph.statistics().heaviestEdges(capacity).entrySet()) {
+            assertEquals((long) weights.get(edge.getKey()), (long) edge.getValue());
+            actual.add(edge.getValue());
+        }
+        assertEquals(capacity, actual.size());
+        for (int i = 0; i < capacity; i++) {
+            assertEquals((long) expected.get(i), (long) actual.get(i));
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonEmptyGraphRejected() {
+        Graph<String> inner = new ConcreteEdgesGraph();
+        inner.add("a");
+        new StatisticsGraph<>(inner);
+    }
+}
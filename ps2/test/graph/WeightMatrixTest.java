@@ -0,0 +1,129 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for WeightMatrix.
+ */
+public class WeightMatrixTest {
+    
+    // Testing strategy
+    //   of(): empty graph, isolated vertices, self-loops
+    //   targets(), indexOf(): present and absent labels
+    //   rowSums(), normalizeRows(), scaleWeights(): rows with 0, 1, many edges
+    //   topKPerRow(): k = 0, k < degree, k > degree, ties in weight
+    //   copyInto(): round trip through a Graph
+    //   kernels: scalar, vector (when available) and best agree exactly,
+    //     on rows shorter and longer than a vector, and on sums beyond int;
+    //     with -Dgraph.kernels=vector (as build.sh runs the tests) the vector
+    //     kernels must be available
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    private static Graph<String> sample() {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("a", "b", 3);
+        graph.set("a", "c", 1);
+        graph.set("a", "d", 3);
+        graph.set("a", "a", 5);
+        graph.set("c", "a", 2);
+        graph.add("z");
+        return graph;
+    }
+    
+    @Test
+    public void testEmpty() {
+        WeightMatrix matrix = WeightMatrix.of(new ConcreteEdgesGraph());
+        assertEquals(0, matrix.size());
+        assertEquals(0, matrix.edgeCount());
+        assertEquals(0, matrix.rowSums().length);
+        assertEquals(0, matrix.topKPerRow(3).length);
+    }
+    
+    @Test
+    public void testSnapshot() {
+        WeightMatrix matrix = WeightMatrix.of(sample());
+        assertEquals(5, matrix.size());
+        assertEquals(5, matrix.edgeCount());
+        assertEquals("a", matrix.label(0));
+        assertEquals(4, matrix.indexOf("z"));
+        assertEquals(-1, matrix.indexOf("y"));
+        assertEquals(Map.of("a", 5, "b", 3, "c", 1, "d", 3), matrix.targets("a"));
+        assertEquals(Map.of(), matrix.targets("z"));
+        assertEquals(4, matrix.rowStart(1));
+        assertEquals(2, matrix.column(2));
+        assertEquals(1, matrix.weight(2));
+    }
+    
+    @Test
+    public void testRowSumsAndNormalize() {
+        WeightMatrix matrix = WeightMatrix.of(sample());
+        assertArrayEquals(new long[] { 12, 0, 2, 0, 0 }, matrix.rowSums());
+        assertArrayEquals(new double[] { 5 / 12.0, 3 / 12.0, 1 / 12.0, 3 / 12.0, 1.0 },
+                matrix.normalizeRows(), 1e-12);
+        assertArrayEquals(new double[] { 2.5, 1.5, 0.5, 1.5, 1.0 }, matrix.scaleWeights(0.5), 1e-12);
+    }
+    
+    @Test
+    public void testTopKPerRow() {
+        WeightMatrix matrix = WeightMatrix.of(sample());
+        int[][] top = matrix.topKPerRow(3);
+        assertArrayEquals(new int[] { 0, 1, 3 }, top[0]);
+        assertArrayEquals(new int[] {}, top[1]);
+        assertArrayEquals(new int[] { 0 }, top[2]);
+        assertArrayEquals(new int[] { 0, 1, 3, 2 }, matrix.topKPerRow(10)[0]);
+        assertArrayEquals(new int[] {}, matrix.topKPerRow(0)[0]);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTopKNegative() {
+        WeightMatrix.of(sample()).topKPerRow(-1);
+    }
+    
+    @Test
+    public void testCopyInto() {
+        Graph<String> original = sample();
+        Graph<String> copy = WeightMatrix.of(original).copyInto(new OffHeapGraph());
+        assertEquals(original.vertices(), copy.vertices());
+        for (String vertex : original.vertices()) {
+            assertEquals(original.targets(vertex), copy.targets(vertex));
+        }
+    }
+    
+    @Test
+    public void testKernelsAgree() {
+        Graph<String> graph = new AdaptiveGraph<>();
+        Random random = new Random(33);
+        for (int row = 0; row < 200; row++) {
+            int degree = random.nextInt(70);
+            for (int i = 0; i < degree; i++) {
+                int weight = row % 10 == 0 ? Integer.MAX_VALUE - random.nextInt(10) : 1 + random.nextInt(1000);
+                graph.set("r" + row, "c" + random.nextInt(500), weight);
+            }
+        }
+        WeightMatrix matrix = WeightMatrix.of(graph);
+        WeightKernels scalar = WeightKernels.scalar();
+        WeightKernels vector = WeightKernels.vector();
+        if ("vector".equals(System.getProperty("graph.kernels"))) {
+            assertNotNull("graph.kernels=vector, but the vector folder was not compiled"
+                    + " or jdk.incubator.vector is not in the module graph", vector);
+        }
+        for (WeightKernels kernels : new WeightKernels[] { vector, WeightKernels.best() }) {
+            if (kernels == null) {
+                continue;
+            }
+            assertArrayEquals(kernels.toString(), matrix.rowSums(scalar), matrix.rowSums(kernels));
+            assertArrayEquals(kernels.toString(), matrix.normalizeRows(scalar), matrix.normalizeRows(kernels), 0);
+            assertArrayEquals(kernels.toString(), matrix.scaleWeights(0.1, scalar), matrix.scaleWeights(0.1, kernels), 0);
+        }
+        assertArrayEquals(matrix.rowSums(scalar), matrix.rowSums());
+    }
+}
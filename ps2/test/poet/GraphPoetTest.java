@@ -5,21 +5,298 @@ package poet;
 
 import static org.junit.Assert.*;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Test;
 
+import graph.AdaptiveGraph;
+import graph.ConcreteEdgesGraph;
+import graph.Graph;
+import graph.InProcessTransport;
+import graph.PartitionedGraph;
+import graph.StatisticsGraph;
+
 /**
  * Tests for GraphPoet.
  */
 public class GraphPoetTest {
     
     // Testing strategy
-    //   TODO
+    //   GraphPoet(corpus):
+    //     corpus with repeated pairs, mixed case, several lines
+    //   poem(input):
+    //     input empty, one word, several words
+    //     pairs with no bridge, one bridge, several bridges with ties
+    //     input words in mixed case
+    //   bridges(w1, w2, k):
+    //     k = 0, k < number of candidates, k > number of candidates
+    //     candidates with equal weights
+    //     k negative
+    //     path weights that overflow an int
+    //   bridges(pairs, k):
+    //     no pairs, repeated pairs, same word in several pairs
+    //     graph that answers batch queries
+    //   fromImage(image), fromImage(image, hubBudget):
+    //     image of a corpus, empty corpus; file that is not an image
+    //     without and with a hub budget
+    //     label longer than 64 KB of UTF-8, non-ASCII labels
+    //     corrupt image: negative or oversized vertex count, label length or
+    //     edge count; truncated image; repeated label, repeated edge
+    //   hub bridge tables:
+    //     budget 0 (disabled; the default), DEFAULT_HUB_BUDGET, too small for
+    //     every hub
+    //     pairs with a hub first word, hub second word, no hub
+    //     k within and beyond the precomputed depth
     
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
         assert false; // make sure assertions are enabled with VM argument: -ea
     }
     
-    // TODO tests
+    @Test
+    public void testPoemSpecExample() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        assertEquals("Test of the system.", poet.poem("Test the system."));
+    }
+    
+    @Test
+    public void testPoemMultiLineCorpus() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/seek-new.txt"));
+        assertEquals("Seek to explore strange new life and new civilizations",
+                poet.poem("Seek to explore new life and civilizations"));
+    }
+    
+    @Test
+    public void testPoemEmptyAndSingleWord() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/seek-new.txt"));
+        assertEquals("", poet.poem(""));
+        assertEquals("Worlds", poet.poem("  Worlds  "));
+    }
+    
+    @Test
+    public void testPoemPicksHeaviestBridge() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/ranked-bridges.txt"));
+        assertEquals("A x B", poet.poem("A B"));
+        assertEquals("c b", poet.poem("c b"));
+    }
+    
+    @Test
+    public void testBridgesRanked() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/ranked-bridges.txt"));
+        assertEquals(Arrays.asList(new Bridge("x", 4), new Bridge("y", 2), new Bridge("z", 2)),
+                poet.bridges("a", "B", 5));
+        assertEquals(Arrays.asList(new Bridge("x", 4), new Bridge("y", 2)), poet.bridges("A", "b", 2));
+        assertEquals(Collections.emptyList(), poet.bridges("a", "b", 0));
+        assertEquals(Collections.emptyList(), poet.bridges("b", "a", 3));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testBridgesNegativeK() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/ranked-bridges.txt"));
+        poet.bridges("a", "b", -1);
+    }
+    
+    @Test
+    public void testBridgesBatched() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/ranked-bridges.txt"));
+        List<Map.Entry<String, String>> pairs = Arrays.asList(
+                new AbstractMap.SimpleImmutableEntry<>("a", "b"),
+                new AbstractMap.SimpleImmutableEntry<>("b", "x"),
+                new AbstractMap.SimpleImmutableEntry<>("A", "b"));
+        List<List<Bridge>> bridges = poet.bridges(pairs, 1);
+        assertEquals(3, bridges.size());
+        assertEquals(Arrays.asList(new Bridge("x", 4)), bridges.get(0));
+        assertEquals(Arrays.asList(new Bridge("a", 5)), bridges.get(1));
+        assertEquals(bridges.get(0), bridges.get(2));
+        assertEquals(Collections.emptyList(), poet.bridges(Collections.emptyList(), 1));
+    }
+    
+    @Test
+    public void testBridgesOverPartitionedGraph() throws IOException {
+        File corpus = new File("test/poet/ranked-bridges.txt");
+        GraphPoet poet = new GraphPoet(corpus);
+        try (InProcessTransport shards = new InProcessTransport(4, ConcreteEdgesGraph::new)) {
+            GraphPoet partitioned = new GraphPoet(corpus, new PartitionedGraph(shards));
+            assertEquals(poet.bridges("a", "b", 3), partitioned.bridges("a", "b", 3));
+            assertEquals(poet.poem("A B c a z"), partitioned.poem("A B c a z"));
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonEmptyGraphRejected() throws IOException {
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        graph.add("a");
+        new GraphPoet(new File("test/poet/ranked-bridges.txt"), graph);
+    }
+    
+    @Test
+    public void testHubTablesMatchIntersection() throws IOException {
+        File corpus = new File("test/poet/hub-words.txt");
+        GraphPoet plain = new GraphPoet(corpus, new ConcreteEdgesGraph(), 0);
+        GraphPoet hubs = new GraphPoet(corpus, new StatisticsGraph<>(new ConcreteEdgesGraph()),
+                GraphPoet.DEFAULT_HUB_BUDGET);
+        GraphPoet byDefault = new GraphPoet(corpus);
+        GraphPoet smallBudget = new GraphPoet(corpus, new StatisticsGraph<>(new ConcreteEdgesGraph()), 100);
+        List<String> words = GraphPoet.words("the cat of sea saw the king moon the star. the");
+        List<Map.Entry<String, String>> pairs = new ArrayList<>();
+        for (String w1 : words) {
+            for (String w2 : words) {
+                pairs.add(new AbstractMap.SimpleImmutableEntry<>(w1, w2));
+            }
+        }
+        for (int k : new int[] { 1, 3, 10 }) {
+            List<List<Bridge>> expected = plain.bridges(pairs, k);
+            assertEquals(expected, hubs.bridges(pairs, k));
+            assertEquals(expected, smallBudget.bridges(pairs, k));
+            assertEquals(expected, byDefault.bridges(pairs, k));
+        }
+        assertEquals(plain.poem("The sea the king"), hubs.poem("The sea the king"));
+    }
+    
+    // "the" -> w_i -> "the" for 12 words w_i, and w_0 -> "end"
+    private static Graph<String> hubGraph() {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        for (int i = 0; i < 12; i++) {
+            graph.set("the", "w" + i, 1);
+            graph.set("w" + i, "the", 1);
+        }
+        graph.set("w0", "end", 1);
+        return graph;
+    }
+    
+    @Test
+    public void testHubIndexChoosesHubs() throws IOException {
+        HubBridgeIndex index = new HubBridgeIndex(hubGraph(), GraphPoet.DEFAULT_HUB_BUDGET, 2);
+        assertEquals(2, index.hubCount()); // "the" as out-hub and as in-hub
+        assertEquals(12, index.threshold());
+        assertEquals(null, index.lookup("a", "b", 1));
+        assertEquals(null, index.lookup("the", "b", 3));
+        assertEquals(1, index.lookup("the", "end", 2).size());
+        assertEquals(Collections.emptyList(), index.lookup("the", "nowhere", 1));
+        assertEquals(0, new HubBridgeIndex(hubGraph(), 0, 2).hubCount());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeHubBudget() throws IOException {
+        new GraphPoet(new File("test/poet/hub-words.txt"), new ConcreteEdgesGraph(), -1);
+    }
+    
+    @Test
+    public void testImageRoundTrip() throws IOException {
+        File corpus = new File("test/poet/hub-words.txt");
+        File image = File.createTempFile("poet", ".graph");
+        image.deleteOnExit();
+        GraphImage.write(GraphPoet.load(corpus, new ConcreteEdgesGraph()), image);
+        GraphPoet fromText = new GraphPoet(corpus);
+        GraphPoet fromImage = GraphPoet.fromImage(image);
+        String input = "The king the sea of moon. Stone";
+        assertEquals(fromText.poem(input), fromImage.poem(input));
+        assertEquals(fromText.bridges("the", "the", 10), fromImage.bridges("the", "the", 10));
+        GraphPoet withHubs = GraphPoet.fromImage(image, GraphPoet.DEFAULT_HUB_BUDGET);
+        assertEquals(fromText.bridges("the", "the", 10), withHubs.bridges("the", "the", 10));
+        assertEquals(fromText.poem(input), withHubs.poem(input));
+        
+        File empty = File.createTempFile("poet", ".txt");
+        empty.deleteOnExit();
+        GraphImage.write(GraphPoet.load(empty, new ConcreteEdgesGraph()), image);
+        assertEquals("a b", GraphPoet.fromImage(image).poem("a b"));
+    }
+    
+    @Test
+    public void testBridgeWeightSaturates() throws IOException {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("a", "b", Integer.MAX_VALUE - 1);
+        graph.set("b", "c", Integer.MAX_VALUE - 1);
+        graph.set("a", "d", 5);
+        graph.set("d", "c", 5);
+        File image = File.createTempFile("poet", ".graph");
+        image.deleteOnExit();
+        GraphImage.write(graph, image);
+        assertEquals(Arrays.asList(new Bridge("b", Integer.MAX_VALUE), new Bridge("d", 10)),
+                GraphPoet.fromImage(image).bridges("a", "c", 2));
+    }
+    
+    @Test(expected = IOException.class)
+    public void testImageRejectsCorpusText() throws IOException {
+        GraphPoet.fromImage(new File("test/poet/hub-words.txt"));
+    }
+    
+    @Test
+    public void testImageLongAndNonAsciiLabels() throws IOException {
+        String longWord = "x".repeat(70_000);
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("a", longWord, 2);
+        graph.set(longWord, "caf\u00e9", 3);
+        File image = File.createTempFile("poet", ".graph");
+        image.deleteOnExit();
+        GraphImage.write(graph, image);
+        Graph<String> read = GraphImage.read(image, new AdaptiveGraph<>());
+        assertEquals(graph.vertices(), read.vertices());
+        assertEquals(graph.targets(longWord), read.targets(longWord));
+        assertEquals(graph.sources(longWord), read.sources(longWord));
+    }
+    
+    // An image with the given ints, where a String is written as its UTF-8
+    // length and bytes.
+    private static File image(Object... fields) throws IOException {
+        File image = File.createTempFile("poet", ".graph");
+        image.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(image))) {
+            out.writeInt(0x50474932);
+            for (Object field : fields) {
+                if (field instanceof String) {
+                    byte[] bytes = ((String) field).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                } else {
+                    out.writeInt((Integer) field);
+                }
+            }
+        }
+        return image;
+    }
+    
+    private static void assertCorrupt(File image) {
+        try {
+            GraphImage.read(image, new ConcreteEdgesGraph());
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testImageRejectsCorruptCounts() throws IOException {
+        GraphImage.read(image(2, "a", "b", 1, 0, 1, 5), new ConcreteEdgesGraph()); // valid
+        assertCorrupt(image(-1, 0));
+        assertCorrupt(image(Integer.MAX_VALUE, "a", 0));
+        assertCorrupt(image(1, -3, 0));
+        assertCorrupt(image(1, Integer.MAX_VALUE, 0));
+        assertCorrupt(image(2, "a", "b", -1));
+        assertCorrupt(image(2, "a", "b", Integer.MAX_VALUE, 0, 1, 5));
+        assertCorrupt(image(2, "a", "b", 2, 0, 1, 5));
+        assertCorrupt(image(2, "a", "a", 0));
+        assertCorrupt(image(2, "a", "b", 1, 0, 2, 5));
+        assertCorrupt(image(2, "a", "b", 2, 0, 1, 5, 0, 1, 6));
+    }
+    
+    @Test
+    public void testImageRejectsTruncated() throws IOException {
+        assertCorrupt(image());
+        assertCorrupt(image(2));
+        assertCorrupt(image(2, "a"));
+        assertCorrupt(image(2, "a", "b"));
+        assertCorrupt(image(2, "a", "b", 1, 0, 1));
+    }
     
 }
@@ -0,0 +1,289 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.OutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for PoemPipeline and FileTailPublisher.
+ */
+public class PoemPipelineTest {
+    
+    // Testing strategy
+    //   PoemPipeline:
+    //     no lines, one line, many lines spanning several micro-batches
+    //     lines with zero, one, and several words
+    //     subscriber requesting one item at a time (backpressure)
+    //     batches flushed by size, by linger, by completion
+    //     upstream error, poet failing in a batch flushed by linger and by size
+    //   FileTailPublisher:
+    //     not following: file with and without final newline, empty file
+    //     line terminators LF and CRLF, '\r' inside a line
+    //     following: lines appended after subscribing, then closed; a
+    //       multi-byte character appended in two writes
+    //     cancel, second subscriber, non-positive request made while onNext
+    //       runs on the reading thread
+    
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+    
+    // Subscriber that requests one item at a time and records what it gets.
+    private static class Collector<T> implements Flow.Subscriber<T> {
+        final List<T> items = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Throwable error;
+        private Flow.Subscription subscription;
+        
+        @Override public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+        @Override public void onNext(T item) {
+            items.add(item);
+            subscription.request(1);
+        }
+        @Override public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+        @Override public void onComplete() {
+            done.countDown();
+        }
+        void await() throws InterruptedException {
+            assertTrue("stream did not finish", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+    
+    private static List<String> decode(List<byte[]> items) {
+        List<String> lines = new ArrayList<>();
+        for (byte[] item : items) {
+            lines.add(new String(item, StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+    
+    @Test
+    public void testPipelineMatchesPoem() throws IOException, InterruptedException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/hub-words.txt"));
+        PoemPipeline pipeline = new PoemPipeline(poet, 4, 5, 1);
+        Collector<byte[]> out = new Collector<>();
+        pipeline.subscribe(out);
+        List<String> expected = new ArrayList<>();
+        try (SubmissionPublisher<String> in = new SubmissionPublisher<>()) {
+            in.subscribe(pipeline);
+            for (int i = 0; i < 200; i++) {
+                String line = i % 7 == 0 ? "" : i % 5 == 0 ? "Sea" : "The sea the king and the " + (i % 3 == 0 ? "moon" : "sun");
+                expected.add(poet.poem(line) + "\n");
+                in.submit(line);
+            }
+        }
+        out.await();
+        assertNull(out.error);
+        assertEquals(expected, decode(out.items));
+        Map<String, StageMetrics> metrics = pipeline.metrics();
+        assertEquals(List.of("tokenize", "bridge", "serialize"), new ArrayList<>(metrics.keySet()));
+        for (StageMetrics stage : metrics.values()) {
+            assertEquals(200, stage.getItems());
+        }
+        assertTrue(metrics.get("bridge").getBatches() < 200);
+        assertEquals(200, metrics.get("serialize").getBatches());
+    }
+    
+    @Test
+    public void testPipelineFlushesAfterLinger() throws IOException, InterruptedException {
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        PoemPipeline pipeline = new PoemPipeline(poet, 16, 1000, 1);
+        Collector<byte[]> out = new Collector<>();
+        pipeline.subscribe(out);
+        SubmissionPublisher<String> in = new SubmissionPublisher<>();
+        in.subscribe(pipeline);
+        in.submit("Test the system.");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (out.items.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of("Test of the system.\n"), decode(out.items));
+        in.close();
+        out.await();
+    }
+    
+    @Test
+    public void testPipelineEmptyAndError() throws IOException, InterruptedException {
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        PoemPipeline empty = new PoemPipeline(poet);
+        Collector<byte[]> none = new Collector<>();
+        empty.subscribe(none);
+        SubmissionPublisher<String> nothing = new SubmissionPublisher<>();
+        nothing.subscribe(empty);
+        nothing.close();
+        none.await();
+        assertNull(none.error);
+        assertEquals(0, none.items.size());
+        
+        PoemPipeline failing = new PoemPipeline(poet);
+        Collector<byte[]> failed = new Collector<>();
+        failing.subscribe(failed);
+        SubmissionPublisher<String> in = new SubmissionPublisher<>();
+        in.subscribe(failing);
+        in.closeExceptionally(new IOException("source lost"));
+        failed.await();
+        assertTrue(failed.error instanceof IOException);
+    }
+    
+    // A poet whose bridge queries always fail.
+    private static class FailingPoet extends GraphPoet {
+        FailingPoet() throws IOException {
+            super(new File("src/poet/mugar-omni-theater.txt"));
+        }
+        @Override
+        public List<List<Bridge>> bridges(List<? extends Map.Entry<String, String>> pairs, int k) {
+            throw new IllegalStateException("graph unavailable");
+        }
+    }
+    
+    @Test
+    public void testPipelinePoetFails() throws IOException, InterruptedException {
+        for (int batchPairs : new int[] { 1000, 1 }) { // flushed by linger, by size
+            PoemPipeline pipeline = new PoemPipeline(new FailingPoet(), 16, batchPairs, 1);
+            Collector<byte[]> out = new Collector<>();
+            pipeline.subscribe(out);
+            SubmissionPublisher<String> in = new SubmissionPublisher<>();
+            in.subscribe(pipeline);
+            in.submit("Test the system.");
+            out.await();
+            assertTrue(out.error instanceof IllegalStateException);
+            assertEquals(0, out.items.size());
+            in.close();
+        }
+    }
+    
+    @Test
+    public void testTailWholeFile() throws IOException, InterruptedException {
+        File file = File.createTempFile("tail", ".txt");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("one\r\ntwo\n\na\rb\r\r\nlast");
+        }
+        Collector<String> lines = new Collector<>();
+        new FileTailPublisher(file, false).subscribe(lines);
+        lines.await();
+        assertEquals(List.of("one", "two", "", "a\rb\r", "last"), lines.items);
+        
+        File empty = File.createTempFile("tail", ".txt");
+        empty.deleteOnExit();
+        Collector<String> none = new Collector<>();
+        FileTailPublisher publisher = new FileTailPublisher(empty, false);
+        publisher.subscribe(none);
+        none.await();
+        assertEquals(0, none.items.size());
+        
+        Collector<String> second = new Collector<>();
+        publisher.subscribe(second);
+        second.await();
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+    
+    @Test
+    public void testTailFollowsAppends() throws IOException, InterruptedException {
+        File file = File.createTempFile("tail", ".txt");
+        file.deleteOnExit();
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        PoemPipeline pipeline = new PoemPipeline(poet, 8, 8, 1);
+        Collector<byte[]> out = new Collector<>();
+        pipeline.subscribe(out);
+        try (FileTailPublisher tail = new FileTailPublisher(file, true)) {
+            tail.subscribe(pipeline);
+            try (Writer writer = new FileWriter(file, true)) {
+                writer.write("Test the system.\n");
+                writer.flush();
+                Thread.sleep(100);
+                writer.write("Mugar Theater\n");
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (out.items.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+        out.await();
+        assertEquals(List.of("Test of the system.\n", "Mugar omni Theater\n"), decode(out.items));
+    }
+    
+    @Test
+    public void testTailSplitCharacter() throws IOException, InterruptedException {
+        File file = File.createTempFile("tail", ".txt");
+        file.deleteOnExit();
+        byte[] bytes = "caf\u00e9\n".getBytes(StandardCharsets.UTF_8);
+        Collector<String> lines = new Collector<>();
+        try (FileTailPublisher tail = new FileTailPublisher(file, true)) {
+            tail.subscribe(lines);
+            try (OutputStream out = new FileOutputStream(file, true)) {
+                out.write(bytes, 0, 4); // "caf" and the first byte of "\u00e9"
+                out.flush();
+                Thread.sleep(100);      // the reader reaches the end of the file
+                out.write(bytes, 4, bytes.length - 4);
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (lines.items.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+        lines.await();
+        assertEquals(List.of("caf\u00e9"), lines.items);
+    }
+    
+    @Test
+    public void testTailNonPositiveRequest() throws IOException, InterruptedException {
+        File file = File.createTempFile("tail", ".txt");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("one\ntwo\n");
+        }
+        CountDownLatch inNext = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> signals = Collections.synchronizedList(new ArrayList<>());
+        Collector<String> lines = new Collector<String>() {
+            @Override public void onNext(String item) {
+                signals.add("onNext " + item);
+                inNext.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                signals.add("onNext done");
+                super.onNext(item);
+            }
+            @Override public void onError(Throwable throwable) {
+                signals.add("onError " + Thread.currentThread().getName());
+                super.onError(throwable);
+            }
+        };
+        new FileTailPublisher(file, false).subscribe(lines);
+        assertTrue(inNext.await(10, TimeUnit.SECONDS));
+        lines.subscription.request(0); // from this thread, while onNext runs
+        Thread.sleep(50);
+        assertEquals(List.of("onNext one"), signals);
+        release.countDown();
+        lines.await();
+        assertTrue(lines.error instanceof IllegalArgumentException);
+        assertEquals(List.of("onNext one", "onNext done", "onError tail-" + file.getName()), signals);
+    }
+}
@@ -0,0 +1,64 @@
+package graph;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * WeightKernels written with the incubating Vector API, in the vector shape
+ * the platform prefers. Requires {@code --add-modules jdk.incubator.vector}
+ * at compile and run time; loaded reflectively by WeightKernels, which falls
+ * back to its scalar kernels without it.
+ */
+final class VectorKernels extends WeightKernels {
+
+    // a vector of ints converts to two long vectors of the same shape
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    // and a half-width vector of ints to one double vector
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> HALF_INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    @Override
+    long sum(int[] weights, int from, int to) {
+        int i = from;
+        long sum = 0;
+        int bound = from + INTS.loopBound(to - from);
+        if (i < bound) {
+            LongVector total = LongVector.zero(LONGS);
+            for (; i < bound; i += INTS.length()) {
+                IntVector v = IntVector.fromArray(INTS, weights, i);
+                total = total.add(v.convertShape(VectorOperators.I2L, LONGS, 0))
+                        .add(v.convertShape(VectorOperators.I2L, LONGS, 1));
+            }
+            sum = total.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < to; i++) {
+            sum += weights[i];
+        }
+        return sum;
+    }
+
+    @Override
+    void scale(int[] weights, int from, int to, double factor, double[] scaled) {
+        int i = from;
+        int bound = from + HALF_INTS.loopBound(to - from);
+        for (; i < bound; i += HALF_INTS.length()) {
+            DoubleVector v = (DoubleVector) IntVector.fromArray(HALF_INTS, weights, i)
+                    .convertShape(VectorOperators.I2D, DOUBLES, 0);
+            v.mul(factor).intoArray(scaled, i);
+        }
+        for (; i < to; i++) {
+            scaled[i] = weights[i] * factor;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "vector " + INTS.vectorBitSize() + "-bit";
+    }
+}